@@ -0,0 +1,78 @@
+package src.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import src.model.DefinitionIndex;
+import src.model.SlangWord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * findByDefinition: 1 token, nhiều token, query không tạo được n-gram (1 ký tự, duyệt toàn bộ),
+ * và bản xếp hạng top-10. Query lấy từ definition của các slang chọn ngẫu nhiên (seed cố định).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class DefinitionSearchBenchmarks {
+
+    private static final int SAMPLES = 1024;
+    private static final String[] TOKENLESS = {"a", "e", "?", "o", "!", "i"};
+
+    private String[] single;
+    private String[] multi;
+    private int i;
+
+    @Setup(Level.Trial)
+    public void pickQueries(DictionaryState state) {
+        Random rnd = new Random(7);
+        List<SlangWord> all = new ArrayList<>(state.dict.getAll().values());
+        List<String> s = new ArrayList<>();
+        List<String> m = new ArrayList<>();
+        for (int tries = 0; tries < SAMPLES * 8 && (s.size() < SAMPLES || m.size() < SAMPLES); tries++) {
+            SlangWord sw = all.get(rnd.nextInt(all.size()));
+            if (sw.getDefinitions().isEmpty()) continue;
+            List<String> tokens = DefinitionIndex.tokenize(sw.getDefinitions().get(0));
+            if (!tokens.isEmpty() && tokens.get(0).length() >= 2 && s.size() < SAMPLES) s.add(tokens.get(0));
+            if (tokens.size() >= 2 && m.size() < SAMPLES) m.add(tokens.get(0) + " " + tokens.get(1));
+        }
+        // corpus không đủ query kiểu đó thì dùng query 1 ký tự (vẫn đo được, chỉ là đường duyệt toàn bộ)
+        single = s.isEmpty() ? TOKENLESS : s.toArray(new String[0]);
+        multi = m.isEmpty() ? single : m.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public List<SlangWord> singleToken(DictionaryState state) {
+        return state.dict.findByDefinition(single[i++ % single.length]);
+    }
+
+    @Benchmark
+    public List<SlangWord> multiToken(DictionaryState state) {
+        return state.dict.findByDefinition(multi[i++ % multi.length]);
+    }
+
+    @Benchmark
+    public List<SlangWord> tokenless(DictionaryState state) {
+        return state.dict.findByDefinition(TOKENLESS[i++ % TOKENLESS.length]);
+    }
+
+    @Benchmark
+    public List<SlangWord> top10(DictionaryState state) {
+        return state.dict.findByDefinition(single[i++ % single.length], 10);
+    }
+}
@@ -0,0 +1,60 @@
+package src.bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import src.model.SlangDAO;
+import src.model.SlangDictionary;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * DictionaryState - dictionary đã nạp (và đã build index) cho một kích thước corpus.
+ * - size: "base" là data/slang.txt (hoặc -Dslang.bench.source), số khác là corpus CorpusGenerator
+ *   sinh từ phân bố của file nguồn với đúng số dòng đó (seed cố định: lần chạy nào cũng như nhau).
+ * - Mỗi benchmark chạy trong JVM fork riêng nên SlangDictionary singleton không bị dùng chung
+ *   giữa các benchmark / kích thước.
+ * - Mọi file ghi ra nằm trong thư mục tạm workDir, xóa khi kết thúc trial; không đụng tới data/.
+ */
+@State(Scope.Benchmark)
+public class DictionaryState {
+
+    public static final String SOURCE_PROPERTY = "slang.bench.source";
+
+    @Param({"base", "100000", "1000000"})
+    public String size;
+
+    public final SlangDictionary dict = SlangDictionary.getInstance();
+    public Path workDir;
+    public Path corpus;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        Path source = Paths.get(System.getProperty(SOURCE_PROPERTY, SlangDAO.FILE_PATH));
+        workDir = Files.createTempDirectory("slang-bench");
+        if (size.equals("base")) {
+            corpus = source;
+        } else {
+            corpus = workDir.resolve("slang-" + size + ".txt");
+            CorpusGenerator.fromFile(source).generate(corpus, Long.parseLong(size));
+        }
+        dict.clear();
+        SlangDAO.load(dict, corpus);
+        dict.buildIndex();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteWorkDir() throws IOException {
+        try (Stream<Path> paths = Files.walk(workDir)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) Files.deleteIfExists(p);
+        }
+    }
+}
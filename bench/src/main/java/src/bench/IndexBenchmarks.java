@@ -0,0 +1,75 @@
+package src.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import src.model.DefinitionIndex;
+import src.model.IdBitmap;
+import src.model.SlangWord;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DefinitionIndex: build token index / n-gram index từ dictionary đã nạp, save và load file index.
+ * Mỗi lần gọi đo riêng (single shot) vì một lần đã tốn cỡ ms .. s.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class IndexBenchmarks {
+
+    private static final long CHECKSUM = 0x5EEDL;
+
+    private Map<String, IdBitmap> index;
+    private int[] remap;
+    private int liveCount;
+    private String file;
+
+    @Setup(Level.Trial)
+    public void saveIndex(DictionaryState state) throws IOException {
+        index = DefinitionIndex.build(state.dict.getAll());
+        // ID có lỗ khi file có key trùng (từ bị ghi đè): nén lại theo thứ tự như SlangDictionary.saveIndex
+        List<SlangWord> live = state.dict.getAllInOrder();
+        liveCount = live.size();
+        remap = new int[live.isEmpty() ? 0 : live.get(live.size() - 1).getId() + 1];
+        Arrays.fill(remap, -1);
+        for (int n = 0; n < live.size(); n++) remap[live.get(n).getId()] = n;
+        file = state.workDir.resolve("bench_index.bin").toString();
+        DefinitionIndex.save(file, index, remap, CHECKSUM);
+    }
+
+    @Benchmark
+    public Map<String, IdBitmap> build(DictionaryState state) {
+        return DefinitionIndex.build(state.dict.getAll());
+    }
+
+    @Benchmark
+    public Map<String, IdBitmap> buildGrams(DictionaryState state) {
+        return DefinitionIndex.buildGrams(state.dict.getAll());
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        DefinitionIndex.save(file, index, remap, CHECKSUM);
+    }
+
+    @Benchmark
+    public Map<String, IdBitmap> load() throws IOException {
+        return DefinitionIndex.load(file, CHECKSUM, liveCount);
+    }
+}
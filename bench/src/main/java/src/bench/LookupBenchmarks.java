@@ -0,0 +1,74 @@
+package src.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import src.model.SlangWord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * findByWord: trúng key, sai hoa/thường (qua folded key index), không có.
+ * Mỗi lời gọi lấy key tiếp theo trong một vòng SAMPLES key chọn sẵn (seed cố định).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class LookupBenchmarks {
+
+    private static final int SAMPLES = 1024;
+
+    private String[] hits;
+    private String[] caseMisses;
+    private String[] misses;
+    private int i;
+
+    @Setup(Level.Trial)
+    public void pickKeys(DictionaryState state) {
+        Map<String, SlangWord> words = state.dict.getAll();
+        Random rnd = new Random(42);
+        List<String> keys = new ArrayList<>(words.keySet());
+        List<String> cm = new ArrayList<>();
+        hits = new String[SAMPLES];
+        misses = new String[SAMPLES];
+        for (int n = 0; n < SAMPLES; n++) {
+            String key = keys.get(rnd.nextInt(keys.size()));
+            hits[n] = key;
+            String folded = key.toLowerCase().equals(key) ? key.toUpperCase() : key.toLowerCase();
+            if (!words.containsKey(folded)) cm.add(folded);
+            misses[n] = "zq" + Long.toString(rnd.nextLong() & Long.MAX_VALUE, 36) + "#";
+        }
+        // key chỉ gồm ký tự không có hoa/thường thì không tạo được biến thể: dùng lại key trúng
+        caseMisses = cm.isEmpty() ? hits : cm.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public SlangWord findByWordHit(DictionaryState state) {
+        return state.dict.findByWord(hits[i++ & (SAMPLES - 1)]);
+    }
+
+    @Benchmark
+    public SlangWord findByWordCaseMiss(DictionaryState state) {
+        return state.dict.findByWord(caseMisses[i++ % caseMisses.length]);
+    }
+
+    @Benchmark
+    public SlangWord findByWordMiss(DictionaryState state) {
+        return state.dict.findByWord(misses[i++ & (SAMPLES - 1)]);
+    }
+}
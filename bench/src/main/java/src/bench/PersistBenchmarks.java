@@ -0,0 +1,88 @@
+package src.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import src.model.SlangDAO;
+import src.model.SlangDictionary;
+import src.model.SlangJournal;
+import src.model.SlangWord;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đường persist của SlangController và nạp file:
+ * - journal: một thay đổi = một record + fsync (trường hợp xấu nhất: mỗi lô của PersistenceWorker
+ *   chỉ có 1 thay đổi).
+ * - compact: ghi snapshot + index và reset journal (SlangDAO.compact vào thư mục tạm).
+ * - load: SlangDAO.load corpus vào dictionary rỗng (dictionary được xóa trước mỗi lần gọi, ngoài phần đo).
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PersistBenchmarks {
+
+    private List<SlangWord> snapshot;
+    private Path dataDir;
+    private SlangJournal journal;
+    private int i;
+
+    @Setup(Level.Trial)
+    public void openJournal(DictionaryState state) throws IOException {
+        snapshot = state.dict.getAllInOrder();
+        dataDir = Files.createDirectories(state.workDir.resolve("data"));
+        journal = SlangJournal.open(dataDir.resolve("slang.journal"), 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void closeJournal() throws IOException {
+        journal.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void journal() throws IOException {
+        journal.appendPut(snapshot.get(i++ % snapshot.size()));
+        journal.sync();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int compact() throws IOException {
+        SlangDAO.compact(snapshot, journal, dataDir);
+        return journal.recordCount();
+    }
+
+    @State(Scope.Benchmark)
+    public static class Empty {
+        final SlangDictionary dict = SlangDictionary.getInstance();
+
+        @Setup(Level.Invocation)
+        public void clear() {
+            dict.clear();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int load(DictionaryState state, Empty empty) throws IOException {
+        return SlangDAO.load(empty.dict, state.corpus);
+    }
+}
@@ -0,0 +1,252 @@
+package src.bench;
+
+import src.model.SlangDAO;
+import src.model.SlangDictionary;
+import src.model.SlangWord;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ConcurrencyStress - kiểm tra reader đồng thời với writer trên SlangDictionary (chỉ trong bộ nhớ,
+ * không ghi gì vào data/). Chạy bằng main, thoát với mã 1 nếu có lần đọc không nhất quán.
+ * - Mỗi writer sở hữu một nhóm slot; slot s ứng với key "ZQSTRESS<s>" và definition
+ *   "zq<s>q r<seq>" (seq tăng dần toàn cục). Writer thêm / sửa tại chỗ / đổi tên sang slot trống
+ *   khác / xóa, và công bố trạng thái slot trong state: +seq = có, -seq = đã xóa, 0 = chưa có,
+ *   PENDING trong lúc đang sửa.
+ * - Reader đọc state trước và sau mỗi truy vấn; nếu hai lần bằng nhau (slot không đổi trong lúc
+ *   đọc) thì findByWord, findByDefinition (cả bản xếp hạng) và getAll phải thấy đúng trạng thái đó.
+ *   Mọi kết quả, kể cả khi slot đang đổi, phải tự nhất quán: key khớp definition, không lẫn slot khác.
+ * - Cuối cùng (hết writer) kiểm tra lại toàn bộ slot một lượt.
+ *
+ * Chạy (từ thư mục gốc repo, cần JDK 17):
+ *   javac -encoding UTF-8 -d out $(find src/model src/controller src/bench -name '*.java')
+ *   java -cp out src.bench.ConcurrencyStress [--seconds=10] [--readers=4] [--writers=2] [--slots=64]
+ */
+public final class ConcurrencyStress {
+
+    private static final String KEY_PREFIX = "ZQSTRESS";
+    private static final int PENDING = Integer.MIN_VALUE;
+    private static final int MAX_REPORTED = 20;
+
+    private final SlangDictionary dict = SlangDictionary.getInstance();
+    private final int writers;
+    private final int slots;
+    private final AtomicIntegerArray state;
+    private final AtomicLong seq = new AtomicLong();
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong violations = new AtomicLong();
+    private volatile boolean running = true;
+
+    private ConcurrencyStress(int writers, int slotsPerWriter) {
+        this.writers = writers;
+        this.slots = writers * slotsPerWriter;
+        this.state = new AtomicIntegerArray(slots);
+    }
+
+    public static void main(String[] args) throws Exception {
+        long seconds = 10;
+        int readers = 4, writers = 2, slotsPerWriter = 64;
+        Path source = Paths.get(SlangDAO.FILE_PATH);
+        for (String a : args) {
+            if (a.startsWith("--seconds=")) seconds = Long.parseLong(value(a));
+            else if (a.startsWith("--readers=")) readers = Integer.parseInt(value(a));
+            else if (a.startsWith("--writers=")) writers = Integer.parseInt(value(a));
+            else if (a.startsWith("--slots=")) slotsPerWriter = Integer.parseInt(value(a));
+            else if (a.startsWith("--source=")) source = Paths.get(value(a));
+        }
+        ConcurrencyStress s = new ConcurrencyStress(Math.max(1, writers), Math.max(2, slotsPerWriter));
+        SlangDAO.load(s.dict, source);
+        s.dict.buildIndex();
+        System.exit(s.run(Math.max(1, readers), seconds) ? 0 : 1);
+    }
+
+    private boolean run(int readers, long seconds) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int owner = w;
+            threads.add(new Thread(() -> writeLoop(owner), "stress-writer-" + w));
+        }
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(this::readLoop, "stress-reader-" + r));
+        }
+        for (Thread t : threads) t.start();
+        TimeUnit.SECONDS.sleep(seconds);
+        running = false;
+        for (Thread t : threads) t.join();
+
+        // không còn writer: mọi slot phải khớp đúng trạng thái đã công bố
+        for (int s = 0; s < slots; s++) checkSlot(s, state.get(s), dict.findByWord(key(s)), "final findByWord");
+        System.out.printf("readers=%d writers=%d slots=%d reads=%d writes=%d violations=%d%n",
+                readers, writers, slots, reads.get(), writes.get(), violations.get());
+        return violations.get() == 0;
+    }
+
+    // ---------------- Writer ----------------
+
+    private void writeLoop(int owner) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        while (running) {
+            int s = owner + writers * rnd.nextInt(slots / writers);
+            int cur = state.get(s);
+            state.set(s, PENDING);
+            if (cur <= 0) {
+                int next = nextSeq();
+                dict.addSlang(word(s, next));
+                state.set(s, next);
+            } else {
+                int op = rnd.nextInt(4);
+                int to = owner + writers * rnd.nextInt(slots / writers);
+                if (op == 0) {
+                    dict.deleteSlang(key(s));
+                    state.set(s, -nextSeq());
+                } else if (op == 1 && to != s && state.get(to) <= 0) {
+                    // đổi tên sang slot trống khác của cùng writer
+                    int old = state.get(to);
+                    state.set(to, PENDING);
+                    int next = nextSeq();
+                    if (!dict.editSlang(key(s), word(to, next))) {
+                        report("editSlang rename failed for " + key(s));
+                        state.set(to, old);
+                        state.set(s, cur);
+                        continue;
+                    }
+                    state.set(to, next);
+                    state.set(s, -next);
+                } else {
+                    int next = nextSeq();
+                    if (!dict.editSlang(key(s), word(s, next))) {
+                        report("editSlang failed for " + key(s));
+                        state.set(s, cur);
+                        continue;
+                    }
+                    state.set(s, next);
+                }
+            }
+            writes.incrementAndGet();
+        }
+    }
+
+    private int nextSeq() {
+        return (int) seq.incrementAndGet();
+    }
+
+    // ---------------- Reader ----------------
+
+    private void readLoop() {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        long n = 0;
+        while (running) {
+            int s = rnd.nextInt(slots);
+            int before = state.get(s);
+            SlangWord byKey = dict.findByWord(key(s));
+            List<SlangWord> byDef = dict.findByDefinition(tag(s));
+            List<SlangWord> ranked = dict.findByDefinition(tag(s), 3);
+            SlangWord inMap = dict.getAll().get(key(s));
+            int after = state.get(s);
+
+            boolean stable = before == after && before != PENDING;
+            checkSlot(s, stable ? before : PENDING, byKey, "findByWord");
+            checkSlot(s, stable ? before : PENDING, inMap, "getAll");
+            checkList(s, stable ? before : PENDING, byDef, "findByDefinition");
+            checkList(s, stable ? before : PENDING, ranked, "findByDefinition(k)");
+
+            SlangWord random = dict.getRandomSlang();
+            if (random == null) report("getRandomSlang returned null");
+            else if (random.getWord().startsWith(KEY_PREFIX)) checkWord(random, "getRandomSlang");
+
+            if ((++n & 1023) == 0) checkSnapshot();
+            reads.incrementAndGet();
+        }
+    }
+
+    // expected: +seq = phải có đúng bản seq, <= 0 = phải không có, PENDING = chỉ kiểm tra tự nhất quán
+    private void checkSlot(int s, int expected, SlangWord w, String what) {
+        if (w != null) {
+            if (!w.getWord().equals(key(s))) {
+                report(what + "(" + key(s) + ") returned " + w.getWord());
+                return;
+            }
+            checkWord(w, what);
+        }
+        if (expected == PENDING) return;
+        if (expected > 0 && (w == null || seqOf(w) != expected)) {
+            report(what + "(" + key(s) + ") expected r" + expected + " but got " + describe(w));
+        } else if (expected <= 0 && w != null) {
+            report(what + "(" + key(s) + ") expected absent but got " + describe(w));
+        }
+    }
+
+    private void checkList(int s, int expected, List<SlangWord> found, String what) {
+        if (found.size() > 1) report(what + "(" + tag(s) + ") returned " + found.size() + " results");
+        checkSlot(s, expected, found.isEmpty() ? null : found.get(0), what);
+    }
+
+    // Một lượt trên snapshot getAll(): key khớp value, và đếm bằng size()
+    private void checkSnapshot() {
+        Map<String, SlangWord> all = dict.getAll();
+        int count = 0;
+        for (Map.Entry<String, SlangWord> e : all.entrySet()) {
+            count++;
+            if (!e.getKey().equals(e.getValue().getWord())) {
+                report("getAll key " + e.getKey() + " maps to " + e.getValue().getWord());
+            } else if (e.getKey().startsWith(KEY_PREFIX)) {
+                checkWord(e.getValue(), "getAll");
+            }
+        }
+        if (count != all.size()) report("getAll size " + all.size() + " but iterated " + count);
+    }
+
+    // Definition phải thuộc đúng slot của key
+    private void checkWord(SlangWord w, String what) {
+        List<String> defs = w.getDefinitions();
+        String key = w.getWord();
+        int s = Integer.parseInt(key.substring(KEY_PREFIX.length()));
+        if (defs.size() != 1 || !defs.get(0).startsWith(tag(s) + " r")) {
+            report(what + " returned " + key + " with definitions " + defs);
+        }
+    }
+
+    private void report(String message) {
+        if (violations.incrementAndGet() <= MAX_REPORTED) {
+            System.err.println("[" + Thread.currentThread().getName() + "] " + message);
+        }
+    }
+
+    // ---------------- Encoding ----------------
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+
+    private static String key(int s) {
+        return KEY_PREFIX + s;
+    }
+
+    // Token riêng của slot, có chữ q hai đầu để "zq1q" không là substring của "zq10q"
+    private static String tag(int s) {
+        return "zq" + s + "q";
+    }
+
+    private static SlangWord word(int s, int seq) {
+        return new SlangWord(key(s), Collections.singletonList(tag(s) + " r" + seq));
+    }
+
+    private static int seqOf(SlangWord w) {
+        String def = w.getDefinitions().get(0);
+        return Integer.parseInt(def.substring(def.lastIndexOf(" r") + 2));
+    }
+
+    private static String describe(SlangWord w) {
+        return w == null ? "null" : w.getWord() + " " + w.getDefinitions();
+    }
+}
@@ -0,0 +1,261 @@
+package src.bench;
+
+import src.model.SlangDAO;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * CorpusGenerator - sinh file slang giả lập cỡ lớn (1k .. 10M dòng) để đo load / index / search.
+ * - Học từ file nguồn (mặc định data/slang.txt): phân bố số definition mỗi dòng, số từ mỗi
+ *   definition và tần suất từng từ; dòng sinh ra lấy mẫu lại đúng các phân bố đó (alias method, O(1)).
+ * - Key là chữ cái đầu các từ của definition đầu (giống "GLOTR`Good Luck On The Rebuild")
+ *   cộng hậu tố base-36 theo số dòng để gần như mọi key khác nhau.
+ * - Dữ liệu "bẩn" có kiểm soát: một tỉ lệ từ được thêm dấu tiếng Việt, một tỉ lệ dòng lặp lại
+ *   key vừa sinh (key trùng) hoặc đổi hoa/thường của key đó (trùng sau khi fold).
+ * - Ghi dạng stream nên 10M dòng không cần giữ trong bộ nhớ; cùng seed cho cùng file.
+ *
+ * Chạy: java -cp out src.bench.CorpusGenerator --size=1000000 --out=/tmp/slang-1m.txt
+ *       [--source=data/slang.txt] [--seed=1] [--duplicates=0.01] [--caseVariants=0.01] [--diacritics=0.05]
+ */
+public final class CorpusGenerator {
+
+    private static final int RECENT_KEYS = 4096; // key trùng lấy từ các key sinh gần đây
+
+    // Biến thể có dấu của từng nguyên âm (và đ)
+    private static final Map<Character, String> ACCENTS = Map.of(
+            'a', "áàảãạăắằẳẵặâấầẩẫậ",
+            'e', "éèẻẽẹêếềểễệ",
+            'i', "íìỉĩị",
+            'o', "óòỏõọôốồổỗộơớờởỡợ",
+            'u', "úùủũụưứừửữự",
+            'y', "ýỳỷỹỵ",
+            'd', "đ");
+
+    private final Sampler definitionCounts;
+    private final Sampler tokensPerDefinition;
+    private final Sampler tokenSampler;
+    private final String[] tokens;
+
+    private long seed = 1;
+    private double duplicateRate = 0.01;
+    private double caseVariantRate = 0.01;
+    private double diacriticRate = 0.05;
+
+    private CorpusGenerator(Sampler definitionCounts, Sampler tokensPerDefinition, Sampler tokenSampler, String[] tokens) {
+        this.definitionCounts = definitionCounts;
+        this.tokensPerDefinition = tokensPerDefinition;
+        this.tokenSampler = tokenSampler;
+        this.tokens = tokens;
+    }
+
+    // Học phân bố từ file nguồn (cùng định dạng data/slang.txt)
+    public static CorpusGenerator fromFile(Path source) throws IOException {
+        Map<Integer, Long> defCounts = new HashMap<>();
+        Map<Integer, Long> tokenCounts = new HashMap<>();
+        Map<String, Long> frequency = new HashMap<>();
+        for (String line : Files.readAllLines(source, StandardCharsets.UTF_8)) {
+            int tick = line.indexOf('`');
+            if (tick <= 0) continue;
+            String[] defs = line.substring(tick + 1).split("\\|");
+            defCounts.merge(defs.length, 1L, Long::sum);
+            for (String def : defs) {
+                String[] words = def.trim().split("\\s+");
+                int n = 0;
+                for (String w : words) {
+                    if (w.isEmpty()) continue;
+                    frequency.merge(w, 1L, Long::sum);
+                    n++;
+                }
+                tokenCounts.merge(Math.max(n, 1), 1L, Long::sum);
+            }
+        }
+        if (frequency.isEmpty()) throw new IOException(source + ": không có dòng hợp lệ");
+
+        String[] tokens = frequency.keySet().toArray(new String[0]);
+        long[] weights = new long[tokens.length];
+        for (int i = 0; i < tokens.length; i++) weights[i] = frequency.get(tokens[i]);
+        return new CorpusGenerator(Sampler.ofHistogram(defCounts), Sampler.ofHistogram(tokenCounts),
+                new Sampler(weights, null), tokens);
+    }
+
+    public CorpusGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    // Tỉ lệ dòng dùng lại đúng một key vừa sinh
+    public CorpusGenerator duplicateRate(double rate) {
+        this.duplicateRate = rate;
+        return this;
+    }
+
+    // Tỉ lệ dòng dùng key vừa sinh nhưng đổi hoa/thường (khác key, cùng folded key)
+    public CorpusGenerator caseVariantRate(double rate) {
+        this.caseVariantRate = rate;
+        return this;
+    }
+
+    // Tỉ lệ từ được thêm dấu tiếng Việt
+    public CorpusGenerator diacriticRate(double rate) {
+        this.diacriticRate = rate;
+        return this;
+    }
+
+    // Ghi size dòng vào out (UTF-8, "word`def1|def2"), trả về số byte đã ghi
+    public long generate(Path out, long size) throws IOException {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        String[] recent = new String[RECENT_KEYS];
+        StringBuilder line = new StringBuilder(256);
+        StringBuilder acronym = new StringBuilder(16);
+        try (BufferedWriter w = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(out), StandardCharsets.UTF_8), 1 << 20)) {
+            for (long i = 0; i < size; i++) {
+                line.setLength(0);
+                acronym.setLength(0);
+                int defs = definitionCounts.sample(rnd);
+                for (int d = 0; d < defs; d++) {
+                    if (d > 0) line.append('|');
+                    int n = tokensPerDefinition.sample(rnd);
+                    for (int t = 0; t < n; t++) {
+                        String token = tokens[tokenSampler.sample(rnd)];
+                        if (rnd.nextDouble() < diacriticRate) token = accent(token, rnd);
+                        if (t > 0) line.append(' ');
+                        line.append(token);
+                        if (d == 0 && acronym.length() < 6 && Character.isLetterOrDigit(token.charAt(0))) {
+                            acronym.append(Character.toUpperCase(token.charAt(0)));
+                        }
+                    }
+                }
+
+                String key;
+                int slot = (int) (i % RECENT_KEYS);
+                double roll = rnd.nextDouble();
+                if (i > 0 && roll < duplicateRate) {
+                    key = recent[rnd.nextInt((int) Math.min(i, RECENT_KEYS))];
+                } else if (i > 0 && roll < duplicateRate + caseVariantRate) {
+                    key = flipCase(recent[rnd.nextInt((int) Math.min(i, RECENT_KEYS))]);
+                } else {
+                    if (acronym.length() == 0) acronym.append('X');
+                    key = acronym.append(Long.toString(i, 36)).toString();
+                }
+                recent[slot] = key;
+                w.append(key).append('`').append(line);
+                w.newLine();
+            }
+        }
+        return Files.size(out);
+    }
+
+    // Thay khoảng một nửa số nguyên âm bằng một biến thể có dấu
+    private static String accent(String token, SplittableRandom rnd) {
+        StringBuilder sb = new StringBuilder(token.length());
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            String variants = ACCENTS.get(Character.toLowerCase(c));
+            if (variants == null || rnd.nextBoolean()) {
+                sb.append(c);
+                continue;
+            }
+            char v = variants.charAt(rnd.nextInt(variants.length()));
+            sb.append(Character.isUpperCase(c) ? Character.toUpperCase(v) : v);
+        }
+        return sb.toString();
+    }
+
+    private static String flipCase(String key) {
+        String lower = key.toLowerCase();
+        return lower.equals(key) ? key.toUpperCase() : lower;
+    }
+
+    /**
+     * Lấy mẫu rời rạc theo trọng số bằng alias method (Walker/Vose): dựng O(n), mỗi mẫu O(1).
+     * values[i] là giá trị trả về của ô i (null: trả về chính i).
+     */
+    static final class Sampler {
+        private final double[] probability;
+        private final int[] alias;
+        private final int[] values;
+
+        Sampler(long[] weights, int[] values) {
+            int n = weights.length;
+            this.values = values;
+            probability = new double[n];
+            alias = new int[n];
+            double total = 0;
+            for (long wt : weights) total += wt;
+            double[] scaled = new double[n];
+            int[] small = new int[n], large = new int[n];
+            int ns = 0, nl = 0;
+            for (int i = 0; i < n; i++) {
+                scaled[i] = weights[i] * n / total;
+                if (scaled[i] < 1) small[ns++] = i;
+                else large[nl++] = i;
+            }
+            while (ns > 0 && nl > 0) {
+                int s = small[--ns], l = large[--nl];
+                probability[s] = scaled[s];
+                alias[s] = l;
+                scaled[l] -= 1 - scaled[s];
+                if (scaled[l] < 1) small[ns++] = l;
+                else large[nl++] = l;
+            }
+            while (nl > 0) probability[large[--nl]] = 1;
+            while (ns > 0) probability[small[--ns]] = 1; // sai số làm tròn
+        }
+
+        static Sampler ofHistogram(Map<Integer, Long> histogram) {
+            List<Integer> keys = new ArrayList<>(histogram.keySet());
+            long[] weights = new long[keys.size()];
+            int[] values = new int[keys.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = keys.get(i);
+                weights[i] = histogram.get(keys.get(i));
+            }
+            return new Sampler(weights, values);
+        }
+
+        int sample(SplittableRandom rnd) {
+            int i = rnd.nextInt(probability.length);
+            int pick = rnd.nextDouble() < probability[i] ? i : alias[i];
+            return values == null ? pick : values[pick];
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path source = Paths.get(SlangDAO.FILE_PATH);
+        Path out = null;
+        long size = 100_000;
+        Map<String, String> opts = new HashMap<>();
+        for (String a : args) {
+            if (a.startsWith("--")) opts.put(a.substring(2, Math.max(2, a.indexOf('='))), a.substring(a.indexOf('=') + 1));
+        }
+        if (opts.containsKey("source")) source = Paths.get(opts.get("source"));
+        if (opts.containsKey("out")) out = Paths.get(opts.get("out"));
+        if (opts.containsKey("size")) size = Long.parseLong(opts.get("size").replace("_", ""));
+        if (out == null) {
+            System.err.println("Cần --out=<file>");
+            System.exit(2);
+        }
+        CorpusGenerator gen = fromFile(source);
+        if (opts.containsKey("seed")) gen.seed(Long.parseLong(opts.get("seed")));
+        if (opts.containsKey("duplicates")) gen.duplicateRate(Double.parseDouble(opts.get("duplicates")));
+        if (opts.containsKey("caseVariants")) gen.caseVariantRate(Double.parseDouble(opts.get("caseVariants")));
+        if (opts.containsKey("diacritics")) gen.diacriticRate(Double.parseDouble(opts.get("diacritics")));
+
+        long start = System.nanoTime();
+        long bytes = gen.generate(out, size);
+        System.out.printf("%s: %d dòng, %.1f MB, %d ms%n", out, size, bytes / 1e6,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,74 @@
+package src.controller;
+
+import src.model.SlangWord;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * EditHistory (undo/redo)
+ * - Mỗi thao tác add/edit/delete được ghi thành một Change nhỏ: SlangWord trước và sau thay đổi
+ *   (cộng slang bị đè khi đổi tên sang key đã có). Index không cần lưu diff: dictionary tự
+ *   cập nhật index tăng dần khi SlangController áp lại bản trước/sau.
+ * - SlangWord trong dictionary không bị sửa tại chỗ nên Change chỉ giữ tham chiếu, không chép.
+ * - Giới hạn `limit` bước undo; bước cũ nhất bị bỏ khi vượt. Thao tác mới xóa stack redo.
+ *
+ * Không thread-safe: SlangController gọi dưới lock của nó.
+ */
+final class EditHistory {
+
+    static final class Change {
+        final SlangWord before;    // null: thay đổi là thêm key mới
+        final SlangWord after;     // null: thay đổi là xóa
+        final SlangWord displaced; // slang bị đè khi đổi tên sang key đã có (chỉ với edit)
+
+        Change(SlangWord before, SlangWord after, SlangWord displaced) {
+            this.before = before;
+            this.after = after;
+            this.displaced = displaced;
+        }
+
+        // Đổi tên key (before và after khác key)
+        boolean isRename() {
+            return before != null && after != null && !before.getWord().equals(after.getWord());
+        }
+    }
+
+    private final int limit;
+    private final Deque<Change> undo = new ArrayDeque<>();
+    private final Deque<Change> redo = new ArrayDeque<>();
+
+    EditHistory(int limit) {
+        this.limit = limit;
+    }
+
+    void record(Change change) {
+        undo.addFirst(change);
+        if (undo.size() > limit) undo.removeLast();
+        redo.clear();
+    }
+
+    // Bước cần hoàn tác (chuyển sang stack redo), null nếu không còn
+    Change undo() {
+        Change c = undo.pollFirst();
+        if (c != null) redo.addFirst(c);
+        return c;
+    }
+
+    // Bước cần làm lại (chuyển về stack undo), null nếu không còn
+    Change redo() {
+        Change c = redo.pollFirst();
+        if (c != null) undo.addFirst(c);
+        return c;
+    }
+
+    boolean canUndo() { return !undo.isEmpty(); }
+
+    boolean canRedo() { return !redo.isEmpty(); }
+
+    // Dictionary bị thay toàn bộ (reset / checkpoint): các bước cũ không còn áp được
+    void clear() {
+        undo.clear();
+        redo.clear();
+    }
+}
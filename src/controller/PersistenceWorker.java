@@ -0,0 +1,400 @@
+package src.controller;
+
+import src.model.Histogram;
+import src.model.ReviewScheduler;
+import src.model.SearchHistoryLog;
+import src.model.SlangDAO;
+import src.model.SlangJournal;
+import src.model.SlangWord;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * PersistenceWorker (write-behind)
+ * - Nhận các thay đổi từ SlangController (thread UI) vào hàng đợi, ghi xuống đĩa ở một thread nền.
+ * - Gom lô: chờ thêm DEBOUNCE_MS sau thay đổi cuối (tối đa MAX_DELAY_MS) hoặc đủ MAX_BATCH thay đổi,
+ *   rồi ghi cả lô vào journal với một lần fsync (lô không có record journal thì không fsync);
+ *   nhiều lệnh compact trong cùng lô chỉ chạy lệnh cuối (snapshot của nó đã gồm các lệnh trước);
+ *   thống kê quiz (ReviewScheduler) cũng chỉ ghi một lần mỗi lô.
+ * - Lịch sử tìm kiếm được ghi nối vào SearchHistoryLog theo đúng thứ tự gửi (không fsync).
+ * - Ghi lỗi: các lệnh chưa bền (kể cả record journal đã append nhưng chưa fsync, được cắt khỏi
+ *   journal trước khi ghi lại) giữ nguyên thứ tự và được thử lại sau RETRY_MIN_MS..RETRY_MAX_MS;
+ *   lệnh gửi sau phải chờ sau chúng nên thứ tự trên đĩa luôn khớp thứ tự sửa.
+ * - flush() chặn tới khi mọi thay đổi gửi trước đó đã bền trên đĩa, ném IOException nếu chưa ghi
+ *   được; close() flush rồi dừng thread (lệnh vẫn lỗi ở lần thử cuối bị bỏ và báo ra stderr).
+ *
+ * Metrics: độ sâu hàng đợi, số lô / số thay đổi đã ghi, thời gian ghi một lô (lần cuối, lớn nhất,
+ * trung bình, histogram).
+ */
+final class PersistenceWorker {
+
+    static final long DEBOUNCE_MS = 50;
+    static final long MAX_DELAY_MS = 500;
+    static final int MAX_BATCH = 256;
+    static final long RETRY_MIN_MS = 100;
+    static final long RETRY_MAX_MS = 2000;
+
+    // Một thay đổi cần ghi; journal == null nghĩa là chỉ ghi được bằng compact
+    private abstract static class Op {
+        boolean written; // đã bền trên đĩa (hoặc đã được lệnh sau bao gồm); chỉ thread worker dùng
+        abstract void apply(SlangJournal journal) throws IOException;
+    }
+
+    private static final class PutOp extends Op {
+        final SlangWord word;
+        PutOp(SlangWord word) { this.word = word; }
+        @Override
+        void apply(SlangJournal journal) throws IOException { journal.appendPut(word); }
+    }
+
+    private static final class EditOp extends Op {
+        final String oldWord;
+        final SlangWord word;
+        EditOp(String oldWord, SlangWord word) { this.oldWord = oldWord; this.word = word; }
+        @Override
+        void apply(SlangJournal journal) throws IOException { journal.appendEdit(oldWord, word); }
+    }
+
+    private static final class DeleteOp extends Op {
+        final String word;
+        DeleteOp(String word) { this.word = word; }
+        @Override
+        void apply(SlangJournal journal) throws IOException { journal.appendDelete(word); }
+    }
+
+    // Snapshot toàn bộ dictionary (theo thứ tự ID) chụp lúc gửi lệnh; onWritten chạy khi snapshot đã bền
+    private static final class CompactOp extends Op {
+        final List<SlangWord> words;
+        final Runnable onWritten;
+        CompactOp(List<SlangWord> words, Runnable onWritten) { this.words = words; this.onWritten = onWritten; }
+        @Override
+        void apply(SlangJournal journal) throws IOException { SlangDAO.compact(words, journal); }
+    }
+
+    // Ghi lại toàn bộ thống kê quiz (file riêng, không qua journal)
+    private static final class ReviewsOp extends Op {
+        final ReviewScheduler reviews;
+        ReviewsOp(ReviewScheduler reviews) { this.reviews = reviews; }
+        @Override
+        void apply(SlangJournal journal) throws IOException { reviews.save(); }
+    }
+
+    // Một thao tác trên history log (append hoặc rewrite)
+    interface HistoryWrite {
+        void to(SearchHistoryLog log) throws IOException;
+    }
+
+    private static final class HistoryOp extends Op {
+        final SearchHistoryLog log;
+        final HistoryWrite write;
+        HistoryOp(SearchHistoryLog log, HistoryWrite write) { this.log = log; this.write = write; }
+        @Override
+        void apply(SlangJournal journal) throws IOException { write.to(log); }
+    }
+
+    private static final class FlushOp extends Op {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile IOException error; // khác null nếu còn lệnh gửi trước marker chưa ghi được
+        @Override
+        void apply(SlangJournal journal) {}
+
+        void complete(IOException e) {
+            error = e;
+            written = true;
+            done.countDown();
+        }
+    }
+
+    private static final Op STOP = new FlushOp(); // marker dừng thread, không bao giờ vào lô
+
+    private final SlangJournal journal;
+    private final LinkedBlockingQueue<Op> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean closed;
+
+    // Trạng thái journal của thread worker: dirty = có thể có record sau syncedSize chưa fsync
+    private boolean dirty;
+    private long syncedSize;
+    private int syncedRecords;
+    private volatile IOException lastError;
+    private volatile int abandoned; // số lệnh bỏ khi close() mà vẫn ghi lỗi
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong opsWritten = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong droppedAfterClose = new AtomicLong();
+    private final AtomicLong totalWriteNanos = new AtomicLong();
+    private volatile long lastWriteNanos;
+    private volatile long maxWriteNanos;
+    private final Histogram writeLatency = new Histogram();
+
+    PersistenceWorker(SlangJournal journal) {
+        this.journal = journal;
+        this.thread = new Thread(this::run, "slang-persistence");
+        thread.setDaemon(true); // không giữ JVM; shutdown hook lo flush
+        thread.start();
+    }
+
+    boolean hasJournal() { return journal != null; }
+
+    void put(SlangWord sw) { submit(new PutOp(sw)); }
+
+    void edit(String oldWord, SlangWord sw) { submit(new EditOp(oldWord, sw)); }
+
+    void delete(String word) { submit(new DeleteOp(word)); }
+
+    // onWritten chạy trên thread worker khi snapshot (hoặc một snapshot gửi sau) đã bền
+    void compact(List<SlangWord> snapshot, Runnable onWritten) { submit(new CompactOp(snapshot, onWritten)); }
+
+    // Thống kê quiz và lịch sử đến từ thao tác đọc (trả lời quiz, tìm kiếm): sau close() thì bỏ, không ném lỗi
+    void saveReviews(ReviewScheduler reviews) { submitOrDrop(new ReviewsOp(reviews)); }
+
+    void history(SearchHistoryLog log, HistoryWrite write) { submitOrDrop(new HistoryOp(log, write)); }
+
+    /**
+     * Chờ tới khi mọi thay đổi đã gửi trước lời gọi này được ghi xong (bỏ qua debounce).
+     * Ném IOException nếu lần ghi vừa rồi lỗi: các thay đổi đó chưa bền (worker vẫn tiếp tục thử lại).
+     * Không gọi từ thread UI khi không cần thiết.
+     */
+    void flush() throws IOException {
+        if (closed || !thread.isAlive()) {
+            if (abandoned > 0) throw new IOException(abandoned + " thay đổi không ghi được xuống đĩa", lastError);
+            return;
+        }
+        FlushOp marker = new FlushOp();
+        queue.add(marker);
+        try {
+            marker.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("flush bị ngắt");
+        }
+        if (marker.error != null) {
+            throw new IOException("chưa ghi được các thay đổi đang chờ (sẽ thử lại)", marker.error);
+        }
+    }
+
+    // Flush rồi dừng thread và đóng journal (gọi từ shutdown hook)
+    void close() {
+        if (closed) return;
+        try {
+            flush();
+        } catch (IOException e) {
+            e.printStackTrace(); // worker thử thêm một lần sau khi closed rồi bỏ
+        }
+        closed = true;
+        queue.add(STOP);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void submit(Op op) {
+        if (closed) throw new IllegalStateException("PersistenceWorker đã đóng");
+        queue.add(op);
+    }
+
+    private void submitOrDrop(Op op) {
+        if (!closed) {
+            queue.add(op);
+            return;
+        }
+        if (droppedAfterClose.getAndIncrement() == 0) {
+            System.err.println("PersistenceWorker đã đóng: bỏ qua các lần ghi lịch sử / thống kê quiz sau đó");
+        }
+    }
+
+    // ---------------- Worker thread ----------------
+
+    private void run() {
+        List<Op> batch = new ArrayList<>(); // khác rỗng: các lệnh ghi lỗi lần trước, đứng đầu lô
+        long retryMs = RETRY_MIN_MS;
+        while (true) {
+            try {
+                if (batch.isEmpty()) {
+                    Op first = queue.take();
+                    if (first == STOP) return;
+                    batch.add(first);
+                    retryMs = RETRY_MIN_MS;
+                } else {
+                    if (closed) {
+                        abandon(batch);
+                        return;
+                    }
+                    Thread.sleep(retryMs);
+                    retryMs = Math.min(retryMs * 2, RETRY_MAX_MS);
+                }
+                collect(batch);
+                write(batch);
+                batch.removeIf(op -> op.written);
+            } catch (InterruptedException e) {
+                abandon(batch);
+                return;
+            }
+        }
+    }
+
+    // Worker dừng khi còn lệnh chưa ghi được: báo lỗi cho mọi flush đang chờ, báo số thay đổi bị bỏ
+    private void abandon(List<Op> batch) {
+        IOException error = lastError != null ? lastError : new IOException("PersistenceWorker đã dừng");
+        List<Op> left = new ArrayList<>(batch);
+        queue.drainTo(left);
+        int n = 0;
+        for (Op op : left) {
+            if (op instanceof FlushOp) ((FlushOp) op).complete(error);
+            else n++;
+        }
+        if (n == 0) return;
+        abandoned += n;
+        System.err.println("PersistenceWorker: bỏ " + n + " thay đổi chưa ghi được xuống đĩa");
+    }
+
+    // Gom thêm thay đổi cho tới khi hết debounce, quá MAX_DELAY_MS, đủ MAX_BATCH hoặc gặp flush
+    private void collect(List<Op> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_DELAY_MS);
+        while (batch.size() < MAX_BATCH && !(batch.get(batch.size() - 1) instanceof FlushOp)) {
+            long wait = Math.min(TimeUnit.MILLISECONDS.toNanos(DEBOUNCE_MS), deadline - System.nanoTime());
+            if (wait <= 0) return;
+            Op next = queue.poll(wait, TimeUnit.NANOSECONDS);
+            if (next == null) return;
+            if (next == STOP) {
+                queue.add(STOP); // xử lý sau khi ghi xong lô này
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Ghi các lệnh chưa ghi của lô theo thứ tự, đánh dấu written các lệnh đã bền rồi báo cho
+     * các FlushOp. Gặp lỗi thì dừng: các lệnh còn lại (và record journal chưa fsync) chờ thử lại.
+     */
+    private void write(List<Op> batch) {
+        int lastCompact = -1, lastReviews = -1;
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.get(i) instanceof CompactOp) lastCompact = i;
+            if (batch.get(i) instanceof ReviewsOp) lastReviews = i;
+        }
+        long start = System.nanoTime();
+        int written = 0;
+        List<Op> unsynced = new ArrayList<>(); // record journal đã append, chờ fsync
+        IOException error = null;
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                Op op = batch.get(i);
+                if (op.written || op instanceof FlushOp) continue;
+                if (op instanceof CompactOp && i != lastCompact) continue; // compact sau đã bao gồm snapshot này
+                if (op instanceof ReviewsOp && i != lastReviews) continue;
+                if (isJournalOp(op)) {
+                    if (i < lastCompact) continue; // snapshot của compact phía sau đã gồm thay đổi này
+                    if (journal == null) { // không có journal: chỉ compact ghi được
+                        op.written = true;
+                        continue;
+                    }
+                    if (unsynced.isEmpty()) markJournal();
+                    op.apply(journal);
+                    unsynced.add(op);
+                } else {
+                    op.apply(journal);
+                    op.written = true;
+                    if (op instanceof CompactOp) {
+                        dirty = false; // journal vừa được làm rỗng
+                        coverBefore(batch, i, o -> isJournalOp(o) || o instanceof CompactOp);
+                    } else if (op instanceof ReviewsOp) {
+                        coverBefore(batch, i, o -> o instanceof ReviewsOp);
+                    }
+                }
+                written++;
+            }
+            if (!unsynced.isEmpty()) {
+                journal.sync(); // lô không có record journal thì không cần
+                dirty = false;
+                for (Op op : unsynced) op.written = true;
+            }
+        } catch (IOException | RuntimeException e) {
+            error = e instanceof IOException ? (IOException) e : new IOException(e);
+            lastError = error;
+            failures.incrementAndGet();
+            e.printStackTrace();
+        }
+
+        boolean clean = true; // mọi lệnh trước vị trí này đã bền
+        for (Op op : batch) {
+            if (op instanceof FlushOp) ((FlushOp) op).complete(clean ? null : error);
+            else if (!op.written) clean = false;
+            else if (op instanceof CompactOp) ((CompactOp) op).onWritten.run(); // lệnh written bị bỏ khỏi lô ngay sau đây
+        }
+        if (error != null || written == 0) return;
+        long elapsed = System.nanoTime() - start;
+        batches.incrementAndGet();
+        opsWritten.addAndGet(written);
+        totalWriteNanos.addAndGet(elapsed);
+        lastWriteNanos = elapsed;
+        if (elapsed > maxWriteNanos) maxWriteNanos = elapsed;
+        writeLatency.record(elapsed);
+    }
+
+    // Trước record đầu tiên của một lần ghi: bỏ phần chưa fsync của lần ghi lỗi trước, nhớ điểm đã bền
+    private void markJournal() throws IOException {
+        if (dirty) {
+            journal.truncate(syncedSize, syncedRecords);
+        } else {
+            syncedSize = journal.size();
+            syncedRecords = journal.recordCount();
+        }
+        dirty = true;
+    }
+
+    // Các lệnh trước vị trí i thỏa covered đã nằm trong lệnh i vừa ghi xong
+    private static void coverBefore(List<Op> batch, int i, Predicate<Op> covered) {
+        for (int j = 0; j < i; j++) {
+            if (covered.test(batch.get(j))) batch.get(j).written = true;
+        }
+    }
+
+    private static boolean isJournalOp(Op op) {
+        return op instanceof PutOp || op instanceof EditOp || op instanceof DeleteOp;
+    }
+
+    // ---------------- Metrics ----------------
+
+    int queueDepth() { return queue.size(); }
+
+    long batchesWritten() { return batches.get(); }
+
+    long opsWritten() { return opsWritten.get(); }
+
+    long failures() { return failures.get(); }
+
+    // Số lần ghi lịch sử / thống kê quiz bị bỏ vì worker đã đóng
+    long droppedAfterClose() { return droppedAfterClose.get(); }
+
+    long lastWriteMillis() { return TimeUnit.NANOSECONDS.toMillis(lastWriteNanos); }
+
+    long maxWriteMillis() { return TimeUnit.NANOSECONDS.toMillis(maxWriteNanos); }
+
+    // Thời gian ghi mỗi lô (ns)
+    Histogram writeLatency() { return writeLatency; }
+
+    double averageWriteMillis() {
+        long n = batches.get();
+        return n == 0 ? 0 : totalWriteNanos.get() / 1e6 / n;
+    }
+}
@@ -0,0 +1,199 @@
+package src.controller;
+
+import src.model.DefinitionIndex;
+import src.model.QuizQuestion;
+import src.model.ReviewScheduler;
+import src.model.SlangDictionary;
+import src.model.SlangWord;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * QuizService
+ * - Sinh sẵn câu hỏi quiz theo lô trên một thread nền, giữ trong hàng đợi riêng cho từng loại
+ *   (A: slang -> definition, B: definition -> slang); view chỉ lấy câu hỏi đã dựng xong.
+ * - Đáp án nhiễu lấy từ các slang có definition chung token với đáp án đúng
+ *   (SlangDictionary.findRelated, dựa trên token index), ưu tiên definition dài gần bằng;
+ *   thiếu thì bù bằng slang ngẫu nhiên có độ dài gần nhất.
+ * - Đáp án đúng ưu tiên các slang đã đến hạn ôn trong ReviewScheduler (SM-2), phần còn lại
+ *   của lô là slang ngẫu nhiên; slang đến hạn nhưng đã bị xóa khỏi dictionary thì bỏ theo dõi.
+ * - Câu hỏi được dựng từ dictionary lúc sinh, nên vài câu trong hàng đợi có thể
+ *   còn nhắc tới từ vừa bị sửa/xóa.
+ */
+final class QuizService {
+
+    static final int OPTIONS = 4;
+    static final int BATCH = 16;      // số câu mỗi lần sinh
+    static final int LOW_WATER = 8;   // hàng đợi còn ít hơn thì sinh thêm
+    private static final int CANDIDATES = 24; // số ứng viên distractor xét cho mỗi câu
+
+    private final SlangDictionary dict;
+    private final ReviewScheduler reviews;
+    private final ExecutorService executor;
+    private final Pool poolA = new Pool(true);
+    private final Pool poolB = new Pool(false);
+
+    // Hàng đợi câu hỏi đã dựng của một loại
+    private static final class Pool {
+        final boolean typeA;
+        final ConcurrentLinkedQueue<QuizQuestion> ready = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger(); // size() của ConcurrentLinkedQueue là O(n)
+        final AtomicBoolean refilling = new AtomicBoolean();
+
+        Pool(boolean typeA) { this.typeA = typeA; }
+    }
+
+    QuizService(SlangDictionary dict, ReviewScheduler reviews) {
+        this.dict = dict;
+        this.reviews = reviews;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "slang-quiz");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Câu hỏi tiếp theo của loại typeA (true = slang -> definition). Thường chỉ là lấy từ hàng đợi;
+     * nếu hàng đợi chưa kịp có (lần gọi đầu) thì dựng ngay một câu. Null nếu dictionary quá ít từ.
+     */
+    QuizQuestion next(boolean typeA) {
+        Pool pool = typeA ? poolA : poolB;
+        QuizQuestion q = pool.ready.poll();
+        if (q != null) {
+            pool.size.decrementAndGet();
+        } else {
+            q = generate(typeA);
+        }
+        refillIfLow(pool);
+        return q;
+    }
+
+    // Sinh trước một lô cho cả hai loại (gọi sau khi load dictionary)
+    void prefetch() {
+        refillIfLow(poolA);
+        refillIfLow(poolB);
+    }
+
+    private void refillIfLow(Pool pool) {
+        if (pool.size.get() >= LOW_WATER || !pool.refilling.compareAndSet(false, true)) return;
+        executor.execute(() -> {
+            try {
+                List<SlangWord> answers = dueAnswers(BATCH);
+                answers.addAll(dict.getRandomSlangs(BATCH - answers.size()));
+                for (SlangWord answer : answers) {
+                    QuizQuestion q = build(answer, pool.typeA);
+                    if (q == null) continue;
+                    pool.ready.add(q);
+                    pool.size.incrementAndGet();
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                pool.refilling.set(false);
+            }
+        });
+    }
+
+    private QuizQuestion generate(boolean typeA) {
+        for (SlangWord answer : dueAnswers(1)) {
+            QuizQuestion q = build(answer, typeA);
+            if (q != null) return q;
+        }
+        for (int attempt = 0; attempt < 8; attempt++) {
+            SlangWord answer = dict.getRandomSlang();
+            if (answer == null) return null;
+            QuizQuestion q = build(answer, typeA);
+            if (q != null) return q;
+        }
+        return null;
+    }
+
+    // Tối đa max slang đến hạn ôn còn trong dictionary
+    private List<SlangWord> dueAnswers(int max) {
+        List<SlangWord> out = new ArrayList<>(max);
+        for (String word : reviews.pollDue(System.currentTimeMillis(), max)) {
+            SlangWord sw = dict.getAll().get(word);
+            if (sw != null) out.add(sw);
+            else reviews.forget(word);
+        }
+        return out;
+    }
+
+    // Dựng câu hỏi cho answer; null nếu answer không có definition hoặc không đủ 2 lựa chọn
+    private QuizQuestion build(SlangWord answer, boolean typeA) {
+        String definition = firstDefinition(answer);
+        if (definition == null) return null;
+        String correct = typeA ? definition : answer.getWord();
+
+        // các lựa chọn khác không được cũng là đáp án đúng (so theo dạng chuẩn hóa)
+        Set<String> taken = new HashSet<>();
+        for (String d : answer.getDefinitions()) taken.add(optionKey(d));
+        taken.add(optionKey(answer.getWord()));
+
+        List<String> options = new ArrayList<>(OPTIONS);
+        options.add(correct);
+        int length = definition.length();
+        addDistractors(options, taken, dict.findRelated(answer, CANDIDATES), length, definition, typeA);
+        if (options.size() < OPTIONS) {
+            addDistractors(options, taken, dict.getRandomSlangs(CANDIDATES), length, definition, typeA);
+        }
+        if (options.size() < 2) return null;
+
+        Collections.shuffle(options, ThreadLocalRandom.current());
+        String prompt = typeA
+                ? "What is the meaning of: " + answer.getWord()
+                : "Which slang means: " + definition;
+        return new QuizQuestion(prompt, options, options.indexOf(correct), answer);
+    }
+
+    /**
+     * Thêm distractor từ candidates cho tới khi đủ OPTIONS: ứng viên có definition dài gần
+     * bằng đáp án được xét trước, chọn ngẫu nhiên trong nhóm gần nhất để câu hỏi không lặp lại.
+     */
+    private static void addDistractors(List<String> options, Set<String> taken, List<SlangWord> candidates,
+                                       int length, String definition, boolean typeA) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        Collections.shuffle(candidates, rnd); // sort ổn định: ứng viên ngang nhau giữ thứ tự ngẫu nhiên
+        candidates.sort(Comparator.comparingInt(sw -> Math.abs(definitionLength(sw) - length)));
+        int need = OPTIONS - options.size();
+        Collections.shuffle(candidates.subList(0, Math.min(candidates.size(), need * 2)), rnd);
+        for (SlangWord sw : candidates) {
+            if (options.size() >= OPTIONS) return;
+            String def = firstDefinition(sw);
+            if (def == null) continue;
+            if (!typeA && sw.getDefinitions().stream().anyMatch(d -> d.trim().equals(definition))) continue;
+            String text = typeA ? def : sw.getWord();
+            if (taken.add(optionKey(text))) options.add(text);
+        }
+    }
+
+    // "What You Wanna Talk About?" và "what you wanna talk about" là cùng một lựa chọn
+    private static String optionKey(String text) {
+        String key = String.join(" ", DefinitionIndex.tokenize(text));
+        return key.isEmpty() ? text.trim() : key; // slang chỉ có ký hiệu, vd. ":)"
+    }
+
+    private static String firstDefinition(SlangWord sw) {
+        List<String> defs = sw.getDefinitions();
+        if (defs == null || defs.isEmpty()) return null;
+        String d = defs.get(0).trim();
+        return d.isEmpty() ? null : d;
+    }
+
+    private static int definitionLength(SlangWord sw) {
+        String d = firstDefinition(sw);
+        return d == null ? Integer.MAX_VALUE / 2 : d.length();
+    }
+}
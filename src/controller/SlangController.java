@@ -1,40 +1,113 @@
 package src.controller;
 
+import src.model.QuizQuestion;
+import src.model.ReviewScheduler;
 import src.model.SlangDictionary;
 import src.model.SlangWord;
 import src.model.SlangDAO;
+import src.model.SlangJournal;
+import src.model.SearchHistory;
 import src.model.SearchHistoryEntry;
-import src.model.DefinitionIndex;
+import src.model.SearchHistoryLog;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
  * SlangController (MVC)
  * - Wrapper quanh SlangDictionary + SlangDAO
- * - Quản lý lịch sử tìm kiếm
- * - Quản lý persist: dictionary + inverted index
+ * - Quản lý lịch sử tìm kiếm: ring buffer giới hạn HISTORY_LIMIT entry (-Dslang.history.size),
+ *   mỗi thay đổi ghi nối vào data/history.log qua PersistenceWorker; log được compact khi
+ *   dài gấp HISTORY_COMPACT_FACTOR lần lịch sử.
+ * - Quản lý persist: mỗi thay đổi ghi một record vào journal; định kỳ compact thành
+ *   snapshot dictionary + inverted index mới. Việc ghi đĩa chạy nền qua PersistenceWorker
+ *   nên các thao tác sửa không chặn thread UI.
+ * - Câu hỏi quiz được QuizService sinh sẵn ở thread nền; kết quả trả lời được ReviewScheduler
+ *   dùng để lên lịch ôn lại (data/review_stats.bin, ghi qua PersistenceWorker)
+ * - Metrics (SlangMetrics): độ trễ tìm kiếm, fallback / full scan, kích thước tập ứng viên,
+ *   thời gian ghi đĩa; xem qua JMX hoặc dumpMetrics().
+ * - Undo/redo nhiều bước cho add/edit/delete (EditHistory); hoàn tác cũng được ghi journal
+ *   như một thay đổi bình thường.
  */
 public class SlangController {
+    // Số entry lịch sử tìm kiếm tối đa; log dài hơn HISTORY_COMPACT_FACTOR lần thì ghi lại
+    // (khai báo trước INSTANCE vì constructor cần tới)
+    private static final int HISTORY_LIMIT = Math.max(1, Integer.getInteger("slang.history.size", 500));
+    private static final int HISTORY_COMPACT_FACTOR = 4;
+
     private static final SlangController INSTANCE = new SlangController(true);
-    private final List<SearchHistoryEntry> history = new ArrayList<>();
+    private final SearchHistory history = new SearchHistory(HISTORY_LIMIT);
+    private final SearchHistoryLog historyLog;
+    private int historyRecords; // số record trong history log (giữ dưới lock history)
     private final SlangDictionary dict;
+    private final PersistenceWorker writer;
+    private final QuizService quiz;
+    private final ReviewScheduler reviews;
+    private final SlangMetrics metrics;
+    private final boolean persistReviews;
+    // Số record journal đã gửi (tăng dần), số đã nằm trong snapshot của lần compact gần nhất đã gửi / đã bền
+    private long mutations;
+    private long compactRequested;
+    private final AtomicLong compactedThrough = new AtomicLong();
+    private final EditHistory edits = new EditHistory(UNDO_LIMIT);
+
+    // Sau ngần này record thì compact journal thành snapshot mới
+    private static final int COMPACT_AFTER_RECORDS = 500;
+
+    // Số bước undo tối đa được giữ
+    private static final int UNDO_LIMIT = 200;
 
     public enum AddOption { OVERWRITE, DUPLICATE, CANCEL }
     public enum AddResult { ADDED, OVERWRITTEN, DUPLICATED, EXISTS, FAILED }
 
     public SlangController(boolean loadData) {
         dict = SlangDictionary.getInstance(); // Singleton pattern
+        SlangJournal journal = null;
         if (loadData) {
             try {
-                SlangDAO.load(dict);              // load từ file data/slang.txt
-                dict.loadOrBuildIndex();          // load index nếu có, nếu không build + save
+                SlangDAO.load(dict);              // snapshot data/slang.txt + index + replay journal
+                journal = SlangDAO.openJournal(); // các thay đổi tiếp theo ghi nối vào journal
+                mutations = journal.recordCount();
                 dict.backupOriginal();            // snapshot gốc sau khi load
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
+        writer = new PersistenceWorker(journal);
+        historyLog = loadData ? openHistoryLog() : null;
+        reviews = loadData ? ReviewScheduler.load() : new ReviewScheduler();
+        persistReviews = loadData;
+        quiz = new QuizService(dict, reviews);
+        metrics = new SlangMetrics(dict, writer);
+        if (loadData) {
+            quiz.prefetch();
+            metrics.register();
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            writer.close(); // ghi xong các record lịch sử còn trong hàng đợi rồi mới đóng log
+            if (historyLog != null) {
+                try {
+                    historyLog.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }, "slang-persistence-shutdown"));
+    }
+
+    // Replay data/history.log vào history; lỗi thì vẫn chạy, chỉ không lưu lịch sử
+    private SearchHistoryLog openHistoryLog() {
+        try {
+            SearchHistoryLog log = SearchHistoryLog.open(Paths.get(SearchHistoryLog.LOG_FILE), history);
+            historyRecords = log.recordCount();
+            return log;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
     }
 
     public static SlangController getInstance() {
@@ -43,20 +116,47 @@ public class SlangController {
 
     // --- Search / Read (ghi lịch sử) ---
     public SlangWord searchByWord(String word) {
+        long start = System.nanoTime();
         SlangWord res = dict.findByWord(word);
+        metrics.recordWordSearch(System.nanoTime() - start);
         List<String> found = res == null ? Collections.emptyList() : Collections.singletonList(res.getWord());
         recordHistory(word, "WORD", found);
         return res;
     }
 
     public List<SlangWord> searchByDefinition(String keyword) {
+        long start = System.nanoTime();
         List<SlangWord> res = dict.findByDefinition(keyword);
+        metrics.recordDefinitionSearch(System.nanoTime() - start);
         List<String> found = res == null ? Collections.emptyList()
                 : res.stream().map(SlangWord::getWord).collect(Collectors.toList());
         recordHistory(keyword, "DEFINITION", found);
         return res;
     }
 
+    // Top-k theo BM25, tốt nhất trước
+    public List<SlangWord> searchByDefinition(String keyword, int limit) {
+        long start = System.nanoTime();
+        List<SlangWord> res = dict.findByDefinition(keyword, limit);
+        metrics.recordDefinitionSearch(System.nanoTime() - start);
+        List<String> found = res.stream().map(SlangWord::getWord).collect(Collectors.toList());
+        recordHistory(keyword, "DEFINITION", found);
+        return res;
+    }
+
+    // Autocomplete cho ô tìm kiếm (không ghi lịch sử)
+    public List<String> suggestWords(String prefix, int limit) {
+        if (prefix == null || prefix.trim().isEmpty()) return Collections.emptyList();
+        return dict.completions(prefix, limit);
+    }
+
+    // "Did you mean": key gần giống nhất khi tra từ không thấy (không ghi lịch sử)
+    public List<String> suggestSimilar(String word, int limit) {
+        if (word == null || word.trim().isEmpty()) return Collections.emptyList();
+        int maxEdits = word.trim().length() <= 3 ? 1 : 2; // từ ngắn chỉ cho sai 1 ký tự
+        return dict.findSimilar(word, maxEdits, limit);
+    }
+
     public Map<String, SlangWord> getAllSlang() {
         return dict.getAll();
     }
@@ -66,9 +166,26 @@ public class SlangController {
         dict.backupOriginal();
     }
 
-    public void resetToOriginal() {
+    public synchronized void resetToOriginal() {
         dict.resetToOriginal();
-        persist(); // save dict + index sau khi reset
+        edits.clear();
+        compact(); // thay cả dictionary: ghi snapshot mới thay vì journal
+    }
+
+    // Checkpoint đặt tên: giữ phiên bản hiện tại, quay lại bất kỳ lúc nào (O(1))
+    public void createCheckpoint(String name) {
+        dict.checkpoint(name);
+    }
+
+    public synchronized boolean restoreCheckpoint(String name) {
+        if (!dict.restoreCheckpoint(name)) return false;
+        edits.clear();
+        compact();
+        return true;
+    }
+
+    public List<String> getCheckpointNames() {
+        return dict.getCheckpointNames();
     }
 
     // --- Random ---
@@ -76,8 +193,36 @@ public class SlangController {
         return dict.getRandomSlang();
     }
 
+    // k slang khác nhau ngẫu nhiên (O(k), không chép dictionary)
+    public List<SlangWord> getRandomSlangs(int k) {
+        return dict.getRandomSlangs(k);
+    }
+
+    // --- Quiz ---
+    // Câu hỏi dựng sẵn (typeA: slang -> definition); null nếu dictionary không đủ từ
+    public QuizQuestion nextQuizQuestion(boolean typeA) {
+        return quiz.next(typeA);
+    }
+
+    /**
+     * Ghi nhận câu trả lời cho question: choice là lựa chọn của người chơi, âm nếu hết giờ.
+     * Đúng: chất lượng 4 (SM-2), sai: 1, hết giờ: 0.
+     */
+    public void recordQuizAnswer(QuizQuestion question, int choice) {
+        if (question == null || question.getAnswer() == null) return;
+        int quality = choice < 0 ? 0 : question.isCorrect(choice) ? 4 : 1;
+        reviews.review(question.getAnswer().getWord(), quality, System.currentTimeMillis());
+        if (persistReviews) writer.saveReviews(reviews);
+    }
+
+    // {attempts, corrects, repetitions, intervalDays} của slang trong quiz; null nếu chưa từng hỏi
+    public int[] getQuizStats(String word) {
+        return reviews.statsOf(word);
+    }
+
     // --- Add ---
-    public AddResult addSlang(String word, String definitionsRaw) {
+    // Các hàm sửa được synchronized để thứ tự ghi journal trùng thứ tự sửa dictionary
+    public synchronized AddResult addSlang(String word, String definitionsRaw) {
         if (word == null || word.trim().isEmpty() || definitionsRaw == null || definitionsRaw.trim().isEmpty()) {
             return AddResult.FAILED;
         }
@@ -89,12 +234,13 @@ public class SlangController {
         } else {
             SlangWord sw = new SlangWord(key, new ArrayList<>(defs));
             dict.addSlang(sw);
-            persist();
+            persistPut(sw);
+            edits.record(new EditHistory.Change(null, sw, null));
             return AddResult.ADDED;
         }
     }
 
-    public AddResult addSlang(String word, String definitionsRaw, AddOption option) {
+    public synchronized AddResult addSlang(String word, String definitionsRaw, AddOption option) {
         if (word == null || word.trim().isEmpty() || definitionsRaw == null || definitionsRaw.trim().isEmpty()) {
             return AddResult.FAILED;
         }
@@ -105,13 +251,16 @@ public class SlangController {
         if (existing == null) {
             SlangWord sw = new SlangWord(key, new ArrayList<>(defs));
             dict.addSlang(sw);
-            persist();
+            persistPut(sw);
+            edits.record(new EditHistory.Change(null, sw, null));
             return AddResult.ADDED;
         } else {
             if (option == AddOption.OVERWRITE) {
-                existing.setDefinitions(new ArrayList<>(defs));
-                dict.addSlang(existing); // addSlang sẽ tự update index (remove old + add new)
-                persist();
+                // tạo SlangWord mới để index còn gỡ được các token của định nghĩa cũ
+                SlangWord sw = new SlangWord(existing.getWord(), new ArrayList<>(defs));
+                dict.addSlang(sw); // addSlang sẽ tự update index (remove old + add new)
+                persistPut(sw);
+                edits.record(new EditHistory.Change(existing, sw, null));
                 return AddResult.OVERWRITTEN;
             } else if (option == AddOption.DUPLICATE) {
                 List<String> merged = new ArrayList<>();
@@ -120,9 +269,10 @@ public class SlangController {
                 for (String d : defs) {
                     if (!merged.contains(d)) merged.add(d);
                 }
-                existing.setDefinitions(merged);
-                dict.addSlang(existing); // update index
-                persist();
+                SlangWord sw = new SlangWord(existing.getWord(), merged);
+                dict.addSlang(sw); // update index
+                persistPut(sw);
+                edits.record(new EditHistory.Change(existing, sw, null));
                 return AddResult.DUPLICATED;
             } else {
                 return AddResult.FAILED;
@@ -131,45 +281,134 @@ public class SlangController {
     }
 
     // --- Edit ---
-    public boolean editSlang(String oldWord, String newWord, String definitionsRaw) {
+    public synchronized boolean editSlang(String oldWord, String newWord, String definitionsRaw) {
         if (oldWord == null || newWord == null || definitionsRaw == null) return false;
         SlangWord existing = dict.findByWord(oldWord);
         if (existing == null) return false;
 
         List<String> newDefs = parseDefinitions(definitionsRaw);
         SlangWord edited = new SlangWord(newWord.trim(), new ArrayList<>(newDefs));
+        Map<String, SlangWord> all = dict.getAll();
+        SlangWord before = all.get(oldWord);
+        SlangWord displaced = edited.getWord().equals(oldWord) ? null : all.get(edited.getWord());
         boolean ok = dict.editSlang(oldWord, edited);
-        if (ok) persist();
+        if (ok) {
+            persistEdit(oldWord, edited);
+            edits.record(new EditHistory.Change(before, edited, displaced));
+        }
         return ok;
     }
 
     // --- Delete ---
-    public boolean deleteSlang(String word) {
+    public synchronized boolean deleteSlang(String word) {
         if (word == null) return false;
+        SlangWord before = dict.getAll().get(word);
         boolean ok = dict.deleteSlang(word);
-        if (ok) persist();
+        if (ok) {
+            persistDelete(word);
+            edits.record(new EditHistory.Change(before, null, null));
+        }
         return ok;
     }
 
+    // --- Undo / Redo ---
+    public synchronized boolean canUndo() {
+        return edits.canUndo();
+    }
+
+    public synchronized boolean canRedo() {
+        return edits.canRedo();
+    }
+
+    // Hoàn tác thay đổi gần nhất; false nếu không còn gì để hoàn tác
+    public synchronized boolean undo() {
+        EditHistory.Change c = edits.undo();
+        if (c == null) return false;
+        if (c.after == null) {
+            // xóa -> thêm lại bản cũ (ID mới, cuối data file)
+            putSlang(c.before);
+        } else if (c.before == null) {
+            removeSlang(c.after.getWord());
+        } else if (c.isRename()) {
+            // đổi tên ngược lại (giữ ID), rồi trả lại slang đã bị đè nếu có
+            renameSlang(c.after.getWord(), c.before);
+            if (c.displaced != null) putSlang(c.displaced);
+        } else {
+            putSlang(c.before);
+        }
+        return true;
+    }
+
+    // Làm lại thay đổi vừa hoàn tác; false nếu không còn gì để làm lại
+    public synchronized boolean redo() {
+        EditHistory.Change c = edits.redo();
+        if (c == null) return false;
+        if (c.after == null) {
+            removeSlang(c.before.getWord());
+        } else if (c.isRename()) {
+            renameSlang(c.before.getWord(), c.after);
+        } else {
+            putSlang(c.after);
+        }
+        return true;
+    }
+
+    private void putSlang(SlangWord sw) {
+        dict.addSlang(sw);
+        persistPut(sw);
+    }
+
+    private void renameSlang(String oldWord, SlangWord sw) {
+        if (dict.editSlang(oldWord, sw)) persistEdit(oldWord, sw);
+    }
+
+    private void removeSlang(String word) {
+        if (dict.deleteSlang(word)) persistDelete(word);
+    }
+
     // --- History management ---
     private void recordHistory(String query, String type, List<String> resultWords) {
         if (query == null) query = "";
         SearchHistoryEntry entry = new SearchHistoryEntry(query, type == null ? "" : type, resultWords == null ? Collections.emptyList() : new ArrayList<>(resultWords));
-        history.add(0, entry);
+        synchronized (history) {
+            if (!history.add(entry)) return; // tìm lại y hệt lần trước: không ghi gì
+            logHistory(log -> log.appendAdd(entry));
+        }
     }
 
+    // Bản chụp lịch sử, mới nhất trước (tìm kiếm có thể chạy từ nhiều thread)
     public List<SearchHistoryEntry> getSearchHistory() {
-        return Collections.unmodifiableList(history);
+        synchronized (history) {
+            return Collections.unmodifiableList(history.toList());
+        }
     }
 
     public boolean deleteHistoryEntry(int index) {
-        if (index < 0 || index >= history.size()) return false;
-        history.remove(index);
-        return true;
+        synchronized (history) {
+            if (!history.remove(index)) return false;
+            logHistory(log -> log.appendRemove(index));
+            return true;
+        }
     }
 
     public void clearSearchHistory() {
-        history.clear();
+        synchronized (history) {
+            history.clear();
+            logHistory(SearchHistoryLog::appendClear);
+        }
+    }
+
+    // Gửi một record lịch sử cho worker (giữ lock history để thứ tự trong log khớp bộ nhớ);
+    // log quá dài thì ghi lại chỉ với các entry hiện có
+    private void logHistory(PersistenceWorker.HistoryWrite write) {
+        if (historyLog == null) return;
+        if (++historyRecords > HISTORY_COMPACT_FACTOR * history.capacity()) {
+            List<SearchHistoryEntry> snapshot = history.toList();
+            writer.history(historyLog, log -> log.rewrite(snapshot));
+            historyRecords = snapshot.size();
+        } else {
+            writer.history(historyLog, write);
+        }
     }
 
     // --- Helpers ---
@@ -182,12 +421,66 @@ public class SlangController {
                 .collect(Collectors.toList());
     }
 
-    private void persist() {
-        try {
-            SlangDAO.save(dict);
-            DefinitionIndex.save(dict.getDefIndex()); // LƯU index để lần sau không cần build lại
-        } catch (IOException e) {
-            e.printStackTrace();
+    // --- Persistence (write-behind) ---
+
+    // Chờ mọi thay đổi đã gửi được ghi xuống đĩa; IOException nếu còn thay đổi chưa ghi được
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    // Metrics của write-behind: độ sâu hàng đợi và thời gian ghi
+    public Map<String, Number> getPersistenceMetrics() {
+        Map<String, Number> m = new LinkedHashMap<>();
+        m.put("queueDepth", writer.queueDepth());
+        m.put("batchesWritten", writer.batchesWritten());
+        m.put("opsWritten", writer.opsWritten());
+        m.put("failures", writer.failures());
+        m.put("droppedAfterClose", writer.droppedAfterClose());
+        m.put("lastWriteMillis", writer.lastWriteMillis());
+        m.put("maxWriteMillis", writer.maxWriteMillis());
+        m.put("avgWriteMillis", writer.averageWriteMillis());
+        return m;
+    }
+
+    // Toàn bộ metrics (tìm kiếm, index, ghi đĩa) dạng text
+    public String dumpMetrics() {
+        return metrics.dump();
+    }
+
+    private void persistPut(SlangWord sw) {
+        if (writer.hasJournal()) writer.put(sw);
+        compactIfNeeded();
+    }
+
+    private void persistEdit(String oldWord, SlangWord edited) {
+        if (writer.hasJournal()) writer.edit(oldWord, edited);
+        compactIfNeeded();
+    }
+
+    private void persistDelete(String word) {
+        if (writer.hasJournal()) writer.delete(word);
+        compactIfNeeded();
+    }
+
+    // Không mở được journal thì quay về ghi cả snapshot như cũ (worker gom các lệnh liên tiếp)
+    private void compactIfNeeded() {
+        mutations++;
+        if (!writer.hasJournal()) {
+            compact();
+            return;
         }
+        long done = compactedThrough.get();
+        boolean pending = compactRequested > done; // worker vẫn đang ghi (hoặc thử lại) lần trước
+        if (!pending && mutations - done >= COMPACT_AFTER_RECORDS) compact();
+    }
+
+    /**
+     * Ghi snapshot dictionary + index mới và làm rỗng journal; snapshot chụp ngay trên thread gọi.
+     * Bộ đếm chỉ lùi khi worker báo snapshot đã bền (ghi lỗi thì worker tự thử lại).
+     */
+    private void compact() {
+        long covered = mutations;
+        compactRequested = covered;
+        writer.compact(dict.getAllInOrder(), () -> compactedThrough.accumulateAndGet(covered, Math::max));
     }
 }
\ No newline at end of file
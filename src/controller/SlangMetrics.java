@@ -0,0 +1,128 @@
+package src.controller;
+
+import src.model.Histogram;
+import src.model.SlangDictionary;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * SlangMetrics
+ * - Gom số liệu vận hành: độ trễ searchByWord / searchByDefinition (đo ở SlangController),
+ *   fallback và full scan + kích thước tập ứng viên + query cache (SlangDictionary), thời gian ghi đĩa
+ *   (PersistenceWorker).
+ * - Mọi bộ đếm đều lock-free (Histogram, LongAdder) nên luôn bật; đọc số liệu không chặn thread ghi.
+ * - Xem qua JMX (SlangMetricsMBean) hoặc dump() dạng text.
+ */
+final class SlangMetrics implements SlangMetricsMBean {
+
+    static final String OBJECT_NAME = "src.controller:type=SlangMetrics";
+
+    private final SlangDictionary dict;
+    private final PersistenceWorker writer;
+    private final Histogram wordSearch = new Histogram();       // ns
+    private final Histogram definitionSearch = new Histogram(); // ns
+
+    SlangMetrics(SlangDictionary dict, PersistenceWorker writer) {
+        this.dict = dict;
+        this.writer = writer;
+    }
+
+    void recordWordSearch(long nanos) { wordSearch.record(nanos); }
+
+    void recordDefinitionSearch(long nanos) { definitionSearch.record(nanos); }
+
+    // Đăng ký với platform MBeanServer; bean cũ cùng tên (controller trước đó) bị thay
+    void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(new StandardMBean(this, SlangMetricsMBean.class), name);
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static double micros(long nanos) { return nanos / 1e3; }
+
+    private static double millis(long nanos) { return nanos / 1e6; }
+
+    // --- search ---
+
+    @Override public long getWordSearchCount() { return wordSearch.count(); }
+    @Override public double getWordSearchMeanMicros() { return wordSearch.mean() / 1e3; }
+    @Override public double getWordSearchP50Micros() { return micros(wordSearch.percentile(50)); }
+    @Override public double getWordSearchP99Micros() { return micros(wordSearch.percentile(99)); }
+    @Override public double getWordSearchMaxMicros() { return micros(wordSearch.max()); }
+
+    @Override public long getDefinitionSearchCount() { return definitionSearch.count(); }
+    @Override public double getDefinitionSearchMeanMicros() { return definitionSearch.mean() / 1e3; }
+    @Override public double getDefinitionSearchP50Micros() { return micros(definitionSearch.percentile(50)); }
+    @Override public double getDefinitionSearchP99Micros() { return micros(definitionSearch.percentile(99)); }
+    @Override public double getDefinitionSearchMaxMicros() { return micros(definitionSearch.max()); }
+
+    // --- index ---
+
+    @Override public long getWordFallbacks() { return dict.getWordFallbacks(); }
+    @Override public long getFullScans() { return dict.getFullScans(); }
+    @Override public double getCandidateSetMean() { return dict.getCandidateSizes().mean(); }
+    @Override public long getCandidateSetP50() { return dict.getCandidateSizes().percentile(50); }
+    @Override public long getCandidateSetP99() { return dict.getCandidateSizes().percentile(99); }
+    @Override public long getCandidateSetMax() { return dict.getCandidateSizes().max(); }
+
+    // --- query cache ---
+
+    private Number cacheStat(String key) { return dict.getQueryCacheStats().get(key); }
+
+    @Override public double getQueryCacheHitRate() { return cacheStat("hitRate").doubleValue(); }
+    @Override public long getQueryCacheHits() { return cacheStat("hits").longValue(); }
+    @Override public long getQueryCacheMisses() { return cacheStat("misses").longValue(); }
+    @Override public int getQueryCacheEntries() { return cacheStat("entries").intValue(); }
+    @Override public long getQueryCacheBytes() { return cacheStat("bytes").longValue(); }
+    @Override public long getQueryCacheEvictions() { return cacheStat("evictions").longValue(); }
+    @Override public long getQueryCacheInvalidations() { return cacheStat("invalidations").longValue(); }
+
+    // --- persist ---
+
+    @Override public long getPersistBatches() { return writer.batchesWritten(); }
+    @Override public double getPersistP50Millis() { return millis(writer.writeLatency().percentile(50)); }
+    @Override public double getPersistP99Millis() { return millis(writer.writeLatency().percentile(99)); }
+    @Override public double getPersistMaxMillis() { return millis(writer.writeLatency().max()); }
+    @Override public int getPersistQueueDepth() { return writer.queueDepth(); }
+    @Override public long getPersistFailures() { return writer.failures(); }
+
+    @Override
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        line(sb, "search.word", wordSearch, 1e3, "us");
+        line(sb, "search.definition", definitionSearch, 1e3, "us");
+        line(sb, "index.candidates", dict.getCandidateSizes(), 1, "");
+        sb.append(String.format(Locale.ROOT, "%-20s %d%n", "index.wordFallbacks", getWordFallbacks()));
+        sb.append(String.format(Locale.ROOT, "%-20s %d%n", "index.fullScans", getFullScans()));
+        Map<String, Number> cache = dict.getQueryCacheStats();
+        sb.append(String.format(Locale.ROOT, "%-20s entries=%d bytes=%d hits=%d misses=%d hitRate=%.3f evictions=%d invalidations=%d%n",
+                "cache.definition", cache.get("entries").intValue(), cache.get("bytes").longValue(),
+                cache.get("hits").longValue(), cache.get("misses").longValue(), cache.get("hitRate").doubleValue(),
+                cache.get("evictions").longValue(), cache.get("invalidations").longValue()));
+        line(sb, "persist.batch", writer.writeLatency(), 1e6, "ms");
+        sb.append(String.format(Locale.ROOT, "%-20s %d%n", "persist.queueDepth", getPersistQueueDepth()));
+        sb.append(String.format(Locale.ROOT, "%-20s %d%n", "persist.failures", getPersistFailures()));
+        return sb.toString();
+    }
+
+    private static void line(StringBuilder sb, String name, Histogram h, double scale, String unit) {
+        sb.append(String.format(Locale.ROOT, "%-20s count=%d mean=%.1f%s p50=%.1f%s p90=%.1f%s p99=%.1f%s max=%.1f%s%n",
+                name, h.count(),
+                h.mean() / scale, unit,
+                h.percentile(50) / scale, unit,
+                h.percentile(90) / scale, unit,
+                h.percentile(99) / scale, unit,
+                h.max() / scale, unit));
+    }
+}
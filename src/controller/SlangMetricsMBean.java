@@ -0,0 +1,50 @@
+package src.controller;
+
+/**
+ * SlangMetricsMBean
+ * - Giao diện JMX (standard MBean) của SlangMetrics, đăng ký với tên
+ *   "src.controller:type=SlangMetrics"; xem bằng jconsole / VisualVM.
+ * - Độ trễ tìm kiếm tính bằng micro giây, thời gian ghi đĩa bằng mili giây.
+ */
+public interface SlangMetricsMBean {
+
+    long getWordSearchCount();
+    double getWordSearchMeanMicros();
+    double getWordSearchP50Micros();
+    double getWordSearchP99Micros();
+    double getWordSearchMaxMicros();
+
+    long getDefinitionSearchCount();
+    double getDefinitionSearchMeanMicros();
+    double getDefinitionSearchP50Micros();
+    double getDefinitionSearchP99Micros();
+    double getDefinitionSearchMaxMicros();
+
+    // findByWord không khớp đúng key, phải tra folded key
+    long getWordFallbacks();
+    // tìm definition phải duyệt toàn bộ dictionary
+    long getFullScans();
+    double getCandidateSetMean();
+    long getCandidateSetP50();
+    long getCandidateSetP99();
+    long getCandidateSetMax();
+
+    // cache kết quả tìm theo definition
+    double getQueryCacheHitRate();
+    long getQueryCacheHits();
+    long getQueryCacheMisses();
+    int getQueryCacheEntries();
+    long getQueryCacheBytes();
+    long getQueryCacheEvictions();
+    long getQueryCacheInvalidations();
+
+    long getPersistBatches();
+    double getPersistP50Millis();
+    double getPersistP99Millis();
+    double getPersistMaxMillis();
+    int getPersistQueueDepth();
+    long getPersistFailures();
+
+    // Toàn bộ số liệu dạng text, mỗi dòng một nhóm
+    String dump();
+}
@@ -0,0 +1,63 @@
+package src.model;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * AtomicFile
+ * - Ghi đè file kiểu crash-safe: ghi ra file tạm cùng thư mục, fsync, rồi rename atomic
+ *   đè lên file đích. Crash ở bất kỳ đâu thì file đích vẫn là bản cũ hoặc bản mới nguyên vẹn.
+ * - Trả về CRC32 của nội dung vừa ghi (không phải đọc lại file để tính checksum).
+ */
+final class AtomicFile {
+
+    interface Body {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private AtomicFile() {}
+
+    static long write(Path target, Body body) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, target.getFileName().toString() + ".", ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream out = new CheckedOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(ch), 64 * 1024), crc);
+                body.writeTo(out);
+                out.flush();
+                ch.force(true); // dữ liệu phải xuống đĩa trước khi rename
+            }
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            syncDirectory(dir);
+            return crc.getValue();
+        } finally {
+            Files.deleteIfExists(tmp); // chỉ còn tồn tại nếu ghi hoặc rename lỗi
+        }
+    }
+
+    // fsync thư mục để bản thân phép rename cũng bền; một số hệ điều hành (Windows) không hỗ trợ
+    private static void syncDirectory(Path dir) {
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException e) {
+            // bỏ qua: rename vẫn atomic, chỉ không chắc đã bền khi mất điện ngay sau đó
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package src.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Bm25Ranker
+ * - Chấm điểm BM25 cho các slang khớp một truy vấn definition, chỉ giữ k kết quả tốt nhất
+ *   trong một min-heap (không gom rồi sort toàn bộ ứng viên).
+ * - df của token = cardinality posting bitmap trong token index; độ dài definition
+ *   (số token) được tính sẵn trong SlangWord.
+ * - Cắt sớm: khi heap đã đủ k, ứng viên có cận trên điểm không vượt được phần tử kém nhất
+ *   bị bỏ qua trước cả bước kiểm tra substring.
+ *
+ * Thứ tự kết quả: điểm giảm dần, bằng điểm thì definition ngắn hơn trước, rồi đến ID nhỏ hơn.
+ */
+final class Bm25Ranker {
+
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+
+    private final String keywordLower;
+    private final String[] tokens;
+    private final double[] idf;
+    private final double idfSum;
+    private final double avgLength;
+    private final int k;
+    private final PriorityQueue<Hit> heap;
+
+    private static final class Hit {
+        final SlangWord word;
+        final double score;
+
+        Hit(SlangWord word, double score) {
+            this.word = word;
+            this.score = score;
+        }
+    }
+
+    /**
+     * @param keywordLower keyword đã normalize (dùng để kiểm tra substring)
+     * @param index        token index, lấy df cho từng token truy vấn
+     * @param docCount     số slang trong dictionary
+     * @param totalLength  tổng số token definition của mọi slang
+     */
+    Bm25Ranker(String keywordLower, Map<String, IdBitmap> index, int docCount, long totalLength, int k) {
+        this.keywordLower = keywordLower;
+        List<String> distinct = new ArrayList<>();
+        for (String t : DefinitionIndex.tokenizeNormalized(keywordLower)) {
+            if (!distinct.contains(t)) distinct.add(t);
+        }
+        this.tokens = distinct.toArray(new String[0]);
+        this.idf = new double[tokens.length];
+        double sum = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            IdBitmap postings = index.get(tokens[i]);
+            int df = postings == null ? 0 : postings.cardinality();
+            idf[i] = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+            sum += idf[i];
+        }
+        this.idfSum = sum;
+        this.avgLength = docCount == 0 ? 1 : Math.max(1.0, (double) totalLength / docCount);
+        this.k = k;
+        // phần tử đầu heap là kết quả kém nhất đang giữ
+        this.heap = new PriorityQueue<>(Math.min(k, 1024) + 1, (a, b) -> compareRank(b, a));
+    }
+
+    // Xét một ứng viên: bỏ qua nếu không thể lọt top-k, kiểm tra substring rồi mới chấm điểm
+    void offer(SlangWord sw) {
+        offer(sw, false);
+    }
+
+    // Slang đã biết chắc khớp (vd. lấy từ QueryCache): không cần kiểm tra substring lại
+    void offerMatch(SlangWord sw) {
+        offer(sw, true);
+    }
+
+    private void offer(SlangWord sw, boolean matched) {
+        if (sw == null) return;
+        int length = sw.getDefinitionLength();
+        if (heap.size() >= k && compareRank(upperBound(length), length, sw.getId(), heap.peek()) >= 0) return;
+        if (!matched && !DefinitionIndex.containsSubstring(sw, keywordLower)) return;
+        double score = score(sw, length);
+        if (heap.size() < k) {
+            heap.add(new Hit(sw, score));
+            return;
+        }
+        Hit worst = heap.peek();
+        if (compareRank(score, length, sw.getId(), worst) < 0) {
+            heap.poll();
+            heap.add(new Hit(sw, score));
+        }
+    }
+
+    // Kết quả tốt nhất trước
+    List<SlangWord> results() {
+        List<Hit> hits = new ArrayList<>(heap);
+        hits.sort(Bm25Ranker::compareRank);
+        List<SlangWord> out = new ArrayList<>(hits.size());
+        for (Hit h : hits) out.add(h.word);
+        return out;
+    }
+
+    private double score(SlangWord sw, int length) {
+        double norm = K1 * (1 - B + B * length / avgLength);
+        double score = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            int tf = termFrequency(sw.getNormalizedDefinitions(), tokens[i]);
+            if (tf > 0) score += idf[i] * tf * (K1 + 1) / (tf + norm);
+        }
+        return score;
+    }
+
+    // tf không vượt quá độ dài definition, nên điểm bị chặn bởi trường hợp tf = length
+    private double upperBound(int length) {
+        if (length == 0) return 0;
+        double norm = K1 * (1 - B + B * length / avgLength);
+        return idfSum * length * (K1 + 1) / (length + norm);
+    }
+
+    // Số lần token xuất hiện như một token nguyên vẹn (hai bên không phải chữ/số)
+    static int termFrequency(String[] normalizedDefinitions, String token) {
+        int tf = 0;
+        for (String norm : normalizedDefinitions) {
+            int from = 0;
+            int at;
+            while ((at = norm.indexOf(token, from)) >= 0) {
+                int end = at + token.length();
+                if ((at == 0 || !isAlnum(norm.charAt(at - 1))) && (end == norm.length() || !isAlnum(norm.charAt(end)))) {
+                    tf++;
+                }
+                from = at + 1;
+            }
+        }
+        return tf;
+    }
+
+    private static boolean isAlnum(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+    }
+
+    private static int compareRank(Hit a, Hit b) {
+        return compareRank(a.score, a.word.getDefinitionLength(), a.word.getId(), b);
+    }
+
+    // < 0 nghĩa là (score, length, id) xếp trước b
+    private static int compareRank(double score, int length, int id, Hit b) {
+        int c = Double.compare(b.score, score);
+        if (c != 0) return c;
+        c = Integer.compare(length, b.word.getDefinitionLength());
+        if (c != 0) return c;
+        return Integer.compare(id, b.word.getId());
+    }
+}
@@ -1,122 +1,398 @@
 package src.model;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.Normalizer;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
  * DefinitionIndex
- * - Xây inverted index cho definition: token (lowercased, no diacritics) -> set slang words
- * - Lưu/Load index ra file để lần chạy sau không cần build lại.
+ * - Xây inverted index cho definition: token (lowercased, no diacritics) -> bitmap ID của slang words
+ * - Xây n-gram index (bigram + trigram của definition đã normalize) để mọi truy vấn
+ *   substring dài >= 2 ký tự đều lấy ứng viên từ index, kể cả mảnh giữa từ như "rof".
+ * - Cập nhật tăng dần kiểu persistent: addToIndex/removeFromIndex trả về index mới (PersistentMap),
+ *   chỉ các bitmap của token bị đổi được chép, index cũ giữ nguyên cho các phiên bản khác.
+ * - Lưu/Load index ra file để lần chạy sau không cần build lại (token và n-gram mỗi loại một file, cùng format).
+ *   Tên file gắn với generation của data file (fileFor), nên lần lưu sau ghi file mới thay vì ghi đè
+ *   file có thể đang được map (MappedDefinitionIndex); file của generation cũ bị xóa khi có thể.
+ *
+ * Format file (big-endian, varint = 7 bit/byte), thiết kế để đọc trực tiếp không deserialize:
+ * - header: magic "SLIX", version, generation (CRC32) của data file mà index được build từ, số từ, số key
+ * - bảng offset (int) cho key table và posting list
+ * - key table: các token (hoặc n-gram) sắp theo byte UTF-8, nối liền (để binary search)
+ * - posting list của từng token: số phần tử + các ID tăng dần được delta-encode.
+ *   ID = thứ tự của từ trong data file (SlangDictionary gán ID theo thứ tự load).
  *
  * Lưu ý:
  * - Index tăng tốc tìm kiếm; kết quả cuối cùng vẫn lọc bằng substring để đảm bảo "definition có chứa keyword".
  */
 public final class DefinitionIndex {
 
-    public static final String INDEX_FILE = "data/def_index.ser";
+    // Tên gốc; file thật có thêm generation, xem fileFor()
+    public static final String INDEX_FILE = "data/def_index.bin";
+    public static final String GRAM_INDEX_FILE = "data/gram_index.bin";
+
+    static final int MAGIC = 0x534C4958; // "SLIX"
+    static final int FORMAT_VERSION = 3;
+    static final int HEADER_WORD_COUNT = 16;
+    static final int HEADER_TOKEN_COUNT = 20;
+    static final int HEADER_SIZE = 24;
+
+    private static final int BUILD_CHUNK = 8192; // số từ mỗi task khi build song song
 
     private static final Pattern NON_ALNUM = Pattern.compile("[^a-z0-9]+");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
 
     private DefinitionIndex() {}
 
-    // Build index từ toàn bộ dictionary
-    public static Map<String, Set<String>> build(Map<String, SlangWord> dict) {
-        Map<String, Set<String>> index = new HashMap<>();
-        for (SlangWord sw : dict.values()) {
-            addToIndex(index, sw);
-        }
-        return index;
+    // Build index từ toàn bộ dictionary (mỗi SlangWord phải đã có ID)
+    public static Map<String, IdBitmap> build(Map<String, SlangWord> dict) {
+        return buildParallel(dict.values().toArray(new SlangWord[0]), false, DefinitionIndex::addTokens);
     }
 
-    // Thêm một slang vào index
-    public static void addToIndex(Map<String, Set<String>> index, SlangWord sw) {
-        if (sw == null || sw.getWord() == null) return;
-        String wordKey = sw.getWord();
-        List<String> defs = sw.getDefinitions();
-        if (defs == null) return;
+    /**
+     * Build index cho một snapshot (danh sách theo thứ tự ghi ra data file) với ID = vị trí trong list.
+     * Không đọc ID của SlangWord nên chạy được trên thread khác trong lúc dictionary vẫn được sửa.
+     */
+    public static Map<String, IdBitmap> buildSnapshot(List<SlangWord> words) {
+        return buildParallel(words.toArray(new SlangWord[0]), true, DefinitionIndex::addTokens);
+    }
 
-        for (String def : defs) {
-            if (def == null) continue;
-            for (String tok : tokenize(def)) {
-                index.computeIfAbsent(tok, k -> new HashSet<>()).add(wordKey);
+    /**
+     * Index mới có thêm slang (index cũ giữ nguyên): mỗi token của slang được thay bằng
+     * bitmap mới có thêm ID, các token khác dùng chung với index cũ.
+     */
+    public static PersistentMap<String, IdBitmap> addToIndex(PersistentMap<String, IdBitmap> index, SlangWord sw) {
+        if (sw == null || sw.getId() < 0) return index;
+        return withId(index, tokensOf(sw), sw.getId());
+    }
+
+    private static void addTokens(Map<String, IdBitmap> index, SlangWord sw, int id) {
+        for (String norm : sw.getNormalizedDefinitions()) {
+            for (String tok : tokenizeNormalized(norm)) {
+                index.computeIfAbsent(tok, k -> new IdBitmap()).add(id);
             }
         }
     }
 
-    // Gỡ slang khỏi index (dùng khi edit/delete)
-    public static void removeFromIndex(Map<String, Set<String>> index, SlangWord sw) {
-        if (sw == null || sw.getWord() == null) return;
-        String wordKey = sw.getWord();
-        List<String> defs = sw.getDefinitions();
-        if (defs == null) return;
+    // Index mới không còn slang (dùng khi edit/delete)
+    public static PersistentMap<String, IdBitmap> removeFromIndex(PersistentMap<String, IdBitmap> index, SlangWord sw) {
+        if (sw == null || sw.getId() < 0) return index;
+        return withoutId(index, tokensOf(sw), sw.getId());
+    }
+
+    private static Set<String> tokensOf(SlangWord sw) {
+        Set<String> keys = new HashSet<>();
+        for (String norm : sw.getNormalizedDefinitions()) keys.addAll(tokenizeNormalized(norm));
+        return keys;
+    }
 
-        for (String def : defs) {
-            if (def == null) continue;
-            for (String tok : tokenize(def)) {
-                Set<String> bucket = index.get(tok);
-                if (bucket != null) {
-                    bucket.remove(wordKey);
-                    if (bucket.isEmpty()) index.remove(tok);
+    /**
+     * Build song song trên ForkJoinPool chung: chia dictionary thành các đoạn BUILD_CHUNK từ,
+     * mỗi đoạn build index riêng rồi gộp từng cặp (OR posting bitmap) khi join.
+     * Dictionary nhỏ chỉ có một đoạn nên chạy tuần tự trên thread hiện tại.
+     */
+    private static Map<String, IdBitmap> buildParallel(SlangWord[] words, boolean byPosition, Adder adder) {
+        return ForkJoinPool.commonPool().invoke(new BuildTask(words, 0, words.length, byPosition, adder));
+    }
+
+    private interface Adder {
+        void add(Map<String, IdBitmap> index, SlangWord sw, int id);
+    }
+
+    private static final class BuildTask extends RecursiveTask<Map<String, IdBitmap>> {
+        private static final long serialVersionUID = 1L;
+
+        // task chỉ sống trong pool, không bao giờ được serialize
+        private final transient SlangWord[] words;
+        private final int from, to;
+        private final boolean byPosition; // ID = vị trí trong mảng thay vì SlangWord.getId()
+        private final transient Adder adder;
+
+        BuildTask(SlangWord[] words, int from, int to, boolean byPosition, Adder adder) {
+            this.words = words;
+            this.from = from;
+            this.to = to;
+            this.byPosition = byPosition;
+            this.adder = adder;
+        }
+
+        @Override
+        protected Map<String, IdBitmap> compute() {
+            if (to - from <= BUILD_CHUNK) {
+                Map<String, IdBitmap> index = new HashMap<>();
+                for (int i = from; i < to; i++) {
+                    SlangWord sw = words[i];
+                    int id = byPosition ? i : sw.getId();
+                    if (id >= 0) adder.add(index, sw, id);
                 }
+                return index;
             }
+            int mid = (from + to) >>> 1;
+            BuildTask left = new BuildTask(words, from, mid, byPosition, adder);
+            left.fork();
+            Map<String, IdBitmap> right = new BuildTask(words, mid, to, byPosition, adder).compute();
+            return merge(left.join(), right);
+        }
+    }
+
+    // Gộp map nhỏ hơn vào map lớn hơn; bitmap của hai map không dùng lại ở đâu khác
+    private static Map<String, IdBitmap> merge(Map<String, IdBitmap> a, Map<String, IdBitmap> b) {
+        Map<String, IdBitmap> into = a.size() >= b.size() ? a : b;
+        Map<String, IdBitmap> from = into == a ? b : a;
+        for (Map.Entry<String, IdBitmap> e : from.entrySet()) {
+            IdBitmap existing = into.putIfAbsent(e.getKey(), e.getValue());
+            if (existing != null) existing.or(e.getValue());
         }
+        return into;
+    }
+
+    // ---------------- N-gram index ----------------
+
+    // Build n-gram index từ toàn bộ dictionary
+    public static Map<String, IdBitmap> buildGrams(Map<String, SlangWord> dict) {
+        return buildParallel(dict.values().toArray(new SlangWord[0]), false, DefinitionIndex::addGrams);
+    }
+
+    // Như buildSnapshot nhưng cho n-gram index
+    public static Map<String, IdBitmap> buildGramsSnapshot(List<SlangWord> words) {
+        return buildParallel(words.toArray(new SlangWord[0]), true, DefinitionIndex::addGrams);
     }
 
-    // Khi đổi định nghĩa/đổi từ: gỡ bản cũ, thêm bản mới
-    public static void updateOnEdit(Map<String, Set<String>> index, SlangWord oldSw, SlangWord newSw) {
-        if (oldSw != null) removeFromIndex(index, oldSw);
-        if (newSw != null) addToIndex(index, newSw);
+    public static PersistentMap<String, IdBitmap> addToGramIndex(PersistentMap<String, IdBitmap> grams, SlangWord sw) {
+        if (sw == null || sw.getId() < 0) return grams;
+        return withId(grams, gramsOf(sw), sw.getId());
     }
 
-    // Lưu index ra file
-    public static void save(Map<String, Set<String>> index) throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(INDEX_FILE)))) {
-            oos.writeObject(convertToSerializable(index));
+    private static void addGrams(Map<String, IdBitmap> grams, SlangWord sw, int id) {
+        for (String norm : sw.getNormalizedDefinitions()) {
+            for (int i = 0; i + 2 <= norm.length(); i++) {
+                grams.computeIfAbsent(norm.substring(i, i + 2), k -> new IdBitmap()).add(id);
+                if (i + 3 <= norm.length()) {
+                    grams.computeIfAbsent(norm.substring(i, i + 3), k -> new IdBitmap()).add(id);
+                }
+            }
         }
     }
 
-    // Load index từ file, trả về null nếu không có
-    @SuppressWarnings("unchecked")
-    public static Map<String, Set<String>> load() throws IOException {
-        File f = new File(INDEX_FILE);
-        if (!f.exists()) return null;
-        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(f)))) {
-            Map<String, List<String>> ser = (Map<String, List<String>>) ois.readObject();
-            Map<String, Set<String>> idx = new HashMap<>();
-            for (Map.Entry<String, List<String>> e : ser.entrySet()) {
-                idx.put(e.getKey(), new HashSet<>(e.getValue()));
+    public static PersistentMap<String, IdBitmap> removeFromGramIndex(PersistentMap<String, IdBitmap> grams, SlangWord sw) {
+        if (sw == null || sw.getId() < 0) return grams;
+        return withoutId(grams, gramsOf(sw), sw.getId());
+    }
+
+    static Set<String> gramsOf(SlangWord sw) {
+        Set<String> keys = new HashSet<>();
+        for (String norm : sw.getNormalizedDefinitions()) {
+            for (int i = 0; i + 2 <= norm.length(); i++) {
+                keys.add(norm.substring(i, i + 2));
+                if (i + 3 <= norm.length()) keys.add(norm.substring(i, i + 3));
             }
-            return idx;
-        } catch (ClassNotFoundException e) {
-            throw new IOException("Failed to deserialize index", e);
         }
+        return keys;
     }
 
-    // Tìm các ứng viên từ index bằng cách giao các bucket của từng token
-    public static Set<String> candidateByTokens(Map<String, Set<String>> index, List<String> tokens) {
-        if (tokens == null || tokens.isEmpty()) return Collections.emptySet();
-        List<Set<String>> buckets = new ArrayList<>();
-        for (String t : tokens) {
-            Set<String> b = index.get(t);
-            if (b == null || b.isEmpty()) return Collections.emptySet();
+    /**
+     * Ứng viên cho truy vấn substring (đã normalize): AND posting của các trigram
+     * (hoặc bigram nếu truy vấn dài 2). Trả về null nếu truy vấn ngắn hơn 2 ký tự
+     * (không đủ để dùng index, caller phải duyệt).
+     */
+    public static IdBitmap candidateBySubstring(Map<String, IdBitmap> grams, String normalizedQuery) {
+        if (normalizedQuery == null || normalizedQuery.length() < 2) return null;
+        int n = normalizedQuery.length() < 3 ? 2 : 3;
+        List<IdBitmap> buckets = new ArrayList<>();
+        for (int i = 0; i + n <= normalizedQuery.length(); i++) {
+            IdBitmap b = grams.get(normalizedQuery.substring(i, i + n));
+            if (b == null || b.isEmpty()) return new IdBitmap();
             buckets.add(b);
         }
-        // Giao dần dần để giảm tập
-        Set<String> result = new HashSet<>(buckets.get(0));
-        for (int i = 1; i < buckets.size(); i++) {
-            result.retainAll(buckets.get(i));
-            if (result.isEmpty()) break;
+        return intersectAll(buckets);
+    }
+
+    private static PersistentMap<String, IdBitmap> withId(PersistentMap<String, IdBitmap> index,
+                                                          Set<String> keys, int id) {
+        for (String key : keys) {
+            IdBitmap bucket = index.get(key);
+            if (bucket == null) {
+                bucket = new IdBitmap();
+                bucket.add(id);
+            } else {
+                bucket = bucket.with(id);
+            }
+            index = index.plus(key, bucket);
+        }
+        return index;
+    }
+
+    private static PersistentMap<String, IdBitmap> withoutId(PersistentMap<String, IdBitmap> index,
+                                                             Set<String> keys, int id) {
+        for (String key : keys) {
+            IdBitmap bucket = index.get(key);
+            if (bucket == null) continue;
+            bucket = bucket.without(id);
+            index = bucket.isEmpty() ? index.minus(key) : index.plus(key, bucket);
+        }
+        return index;
+    }
+
+    // ---------------- Persistence ----------------
+
+    // File index của generation: "data/def_index.bin" -> "data/def_index-1a2b3c4d.bin"
+    public static String fileFor(String file, long generation) {
+        return String.format(Locale.ROOT, "%s-%08x.bin", stripBin(file), generation);
+    }
+
+    /**
+     * Xóa file index của các generation khác (và file không đánh số kiểu cũ) cạnh file.
+     * Xóa lỗi (vd. Windows: file còn đang map) thì bỏ qua, lần save / load sau xóa tiếp.
+     */
+    public static void deleteOtherGenerations(String file, long generation) {
+        Path base = Paths.get(file).toAbsolutePath();
+        String prefix = stripBin(base.getFileName().toString()) + "-";
+        String keep = Paths.get(fileFor(file, generation)).getFileName().toString();
+        List<Path> stale = new ArrayList<>();
+        stale.add(base);
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(base.getParent(), prefix + "*.bin")) {
+            for (Path p : dir) {
+                if (!p.getFileName().toString().equals(keep)) stale.add(p);
+            }
+        } catch (IOException e) {
+            return;
+        }
+        for (Path p : stale) {
+            try {
+                Files.deleteIfExists(p);
+            } catch (IOException e) {
+                // còn đang được dùng: để lần sau
+            }
+        }
+    }
+
+    private static String stripBin(String file) {
+        return file.endsWith(".bin") ? file.substring(0, file.length() - 4) : file;
+    }
+
+    /**
+     * Lưu index ra file của generation dataChecksum (binary format, xem mô tả ở trên).
+     * remap[id] = ID sau khi nén (thứ tự từ trong data file vừa ghi), -1 nếu ID đã bị xóa;
+     * khi load lại data file, SlangDictionary gán ID đúng theo thứ tự đó.
+     */
+    public static void save(String file, Map<String, IdBitmap> index, int[] remap, long dataChecksum) throws IOException {
+        int wordCount = 0;
+        for (int r : remap) if (r >= 0) wordCount++;
+
+        // token table sắp theo byte UTF-8 để MappedDefinitionIndex binary search trực tiếp
+        byte[][] tokens = new byte[index.size()][];
+        int k = 0;
+        for (String tok : index.keySet()) tokens[k++] = tok.getBytes(StandardCharsets.UTF_8);
+        Arrays.sort(tokens, Arrays::compareUnsigned);
+
+        ByteArrayOutputStream tokenData = new ByteArrayOutputStream();
+        ByteArrayOutputStream postingData = new ByteArrayOutputStream();
+        DataOutputStream postingOut = new DataOutputStream(postingData);
+        int[] tokenOffsets = new int[tokens.length + 1];
+        int[] postingOffsets = new int[tokens.length + 1];
+        int tokenCount = 0;
+        for (byte[] tok : tokens) {
+            int[] postings = remapPostings(index.get(new String(tok, StandardCharsets.UTF_8)), remap);
+            if (postings.length == 0) continue; // token chỉ còn trỏ tới ID đã xóa
+
+            tokenData.write(tok);
+            // posting list: count + delta-encoded IDs (varint)
+            writeVarInt(postingOut, postings.length);
+            int prev = 0;
+            for (int id : postings) {
+                writeVarInt(postingOut, id - prev);
+                prev = id;
+            }
+            tokenCount++;
+            tokenOffsets[tokenCount] = tokenData.size();
+            postingOffsets[tokenCount] = postingData.size();
+        }
+
+        int words = wordCount, count = tokenCount;
+        // ghi file tạm + rename atomic: file index cũ còn nguyên nếu crash giữa chừng
+        AtomicFile.write(Paths.get(file), os -> {
+            DataOutputStream out = new DataOutputStream(os);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(dataChecksum);
+            out.writeInt(words);
+            out.writeInt(count);
+            for (int i = 0; i <= count; i++) out.writeInt(tokenOffsets[i]);
+            for (int i = 0; i <= count; i++) out.writeInt(postingOffsets[i]);
+            tokenData.writeTo(out);
+            postingData.writeTo(out);
+            out.flush();
+        });
+    }
+
+    /**
+     * Load index từ file vào heap. Trả về null nếu file không có, sai format/version,
+     * số từ không khớp hoặc được build từ một phiên bản khác của data file
+     * (checksum không khớp) để caller build lại thay vì dùng index cũ.
+     */
+    public static Map<String, IdBitmap> load(String file, long dataChecksum, int wordCount) throws IOException {
+        MappedDefinitionIndex packed = MappedDefinitionIndex.read(new File(file), dataChecksum, wordCount);
+        return packed == null ? null : copyOf(packed);
+    }
+
+    /**
+     * Mở index ở chế độ read-only memory-mapped: không deserialize, posting list
+     * được decode khi tra. Trả về null trong cùng các trường hợp như load().
+     */
+    public static Map<String, IdBitmap> loadMapped(String file, long dataChecksum, int wordCount) throws IOException {
+        return MappedDefinitionIndex.map(new File(file), dataChecksum, wordCount);
+    }
+
+    // Chép index (vd. bản mapped read-only) sang HashMap có thể sửa
+    public static Map<String, IdBitmap> copyOf(Map<String, IdBitmap> index) {
+        // bitmap từ MappedDefinitionIndex luôn được decode mới, không cần chép thêm
+        boolean fresh = index instanceof MappedDefinitionIndex;
+        Map<String, IdBitmap> copy = new HashMap<>(index.size() * 2);
+        for (Map.Entry<String, IdBitmap> e : index.entrySet()) {
+            copy.put(e.getKey(), fresh ? e.getValue() : e.getValue().copy());
+        }
+        return copy;
+    }
+
+    // AND các bitmap từ nhỏ đến lớn; luôn trả về bitmap mới (caller được phép sửa)
+    private static IdBitmap intersectAll(List<IdBitmap> buckets) {
+        buckets.sort(Comparator.comparingInt(IdBitmap::cardinality));
+        IdBitmap result = buckets.get(0);
+        for (int i = 1; i < buckets.size() && !result.isEmpty(); i++) {
+            result = IdBitmap.and(result, buckets.get(i));
         }
-        return result;
+        return buckets.size() == 1 ? result.copy() : result;
+    }
+
+    private static int[] remapPostings(IdBitmap bucket, int[] remap) {
+        int[] out = new int[bucket.cardinality()];
+        int[] n = {0};
+        bucket.forEach(id -> {
+            int r = id < remap.length ? remap[id] : -1;
+            if (r >= 0) out[n[0]++] = r;
+        });
+        int[] ids = Arrays.copyOf(out, n[0]);
+        Arrays.sort(ids);
+        return ids;
     }
 
     // Tokenize + normalize: lowercase, bỏ dấu, tách theo non-alnum
     public static List<String> tokenize(String text) {
         if (text == null) return Collections.emptyList();
-        String norm = removeDiacritics(text).toLowerCase(Locale.ROOT);
+        return tokenizeNormalized(normalize(text));
+    }
+
+    // Tokenize chuỗi đã qua normalize()
+    static List<String> tokenizeNormalized(String norm) {
         String[] parts = NON_ALNUM.split(norm);
         List<String> tokens = Arrays.stream(parts)
                 .map(String::trim)
@@ -125,30 +401,61 @@ public final class DefinitionIndex {
         return tokens;
     }
 
+    // Đếm số token (cùng quy tắc tokenizeNormalized) mà không tạo list
+    static int countTokens(String[] normalized) {
+        int count = 0;
+        for (String norm : normalized) {
+            int run = 0;
+            for (int i = 0; i <= norm.length(); i++) {
+                char c = i < norm.length() ? norm.charAt(i) : ' ';
+                if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                    run++;
+                } else {
+                    if (run >= 2) count++;
+                    run = 0;
+                }
+            }
+        }
+        return count;
+    }
+
     public static String removeDiacritics(String s) {
+        if (isAscii(s)) return s; // phần lớn dữ liệu là ASCII, bỏ qua Normalizer
         String tmp = Normalizer.normalize(s, Normalizer.Form.NFD);
-        return tmp.replaceAll("\\p{M}+", "");
+        return COMBINING_MARKS.matcher(tmp).replaceAll("");
+    }
+
+    // Dạng chuẩn dùng để so khớp definition: bỏ dấu + lowercase
+    public static String normalize(String s) {
+        return removeDiacritics(s).toLowerCase(Locale.ROOT);
     }
 
-    // Kiểm tra substring thực tế (đảm bảo đúng yêu cầu đề)
+    /**
+     * Kiểm tra substring thực tế (đảm bảo đúng yêu cầu đề).
+     * Dùng definition đã normalize sẵn trong SlangWord nên chỉ còn indexOf, không cấp phát.
+     */
     public static boolean containsSubstring(SlangWord sw, String keywordLower) {
         if (sw == null || keywordLower == null || keywordLower.isEmpty()) return false;
-        if (sw.getDefinitions() == null) return false;
-        for (String d : sw.getDefinitions()) {
-            if (d != null) {
-                String norm = removeDiacritics(d).toLowerCase(Locale.ROOT);
-                if (norm.contains(keywordLower)) return true;
-            }
+        for (String norm : sw.getNormalizedDefinitions()) {
+            if (norm.indexOf(keywordLower) >= 0) return true;
         }
         return false;
     }
 
-    // Lưu Set<String> dưới dạng List<String> để đảm bảo serializable đơn giản, giảm rủi ro
-    private static Map<String, List<String>> convertToSerializable(Map<String, Set<String>> index) {
-        Map<String, List<String>> ser = new HashMap<>();
-        for (Map.Entry<String, Set<String>> e : index.entrySet()) {
-            ser.put(e.getKey(), new ArrayList<>(e.getValue()));
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    // ---------------- Binary helpers ----------------
+
+    private static void writeVarInt(DataOutput out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
         }
-        return ser;
+        out.writeByte(v);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,86 @@
+package src.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram kiểu HDR (log-linear) cho giá trị không âm: độ trễ (ns), kích thước tập ứng viên...
+ * - Mỗi lũy thừa của 2 chia thành SUB_BUCKETS ô đều nhau, sai số tương đối của percentile <= 1/SUB_BUCKETS
+ *   (12.5%) trên toàn dải long; giá trị < SUB_BUCKETS được đếm chính xác.
+ * - record() lock-free (một lần increment trên AtomicLongArray + LongAdder), đủ rẻ để bật thường trực;
+ *   đọc percentile duyệt 512 ô, không chặn thread ghi (số liệu đọc giữa chừng có thể lệch vài mẫu).
+ */
+public final class Histogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.getAndIncrement(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        long m = max.get();
+        while (value > m && !max.compareAndSet(m, value)) m = max.get();
+    }
+
+    public long count() { return count.sum(); }
+
+    public long max() { return max.get(); }
+
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Giá trị tại percentile p (0..100): cận trên của ô chứa mẫu thứ ceil(p% * count),
+     * không vượt quá max đã ghi. 0 nếu chưa có mẫu.
+     */
+    public long percentile(double p) {
+        long n = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) n += snapshot[i] = counts.get(i);
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    // Xóa số liệu (không atomic với các record() đang chạy song song)
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    // Ô của value: exponent (vị trí bit cao nhất) * SUB_BUCKETS + SUB_BITS bit ngay sau bit cao nhất
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS + 1;
+        int sub = (int) (value >>> (exponent - 1)) & (SUB_BUCKETS - 1);
+        return exponent * SUB_BUCKETS + sub;
+    }
+
+    // Giá trị lớn nhất thuộc ô i
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS;
+        long sub = bucket % SUB_BUCKETS;
+        long low = (SUB_BUCKETS + sub) << (exponent - 1);
+        long width = 1L << (exponent - 1);
+        return low + width - 1 < low ? Long.MAX_VALUE : low + width - 1;
+    }
+}
@@ -0,0 +1,428 @@
+package src.model;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * IdBitmap
+ * - Tập số nguyên không âm dạng nén kiểu roaring: chia theo 16 bit cao thành các container,
+ *   container thưa là mảng char đã sắp xếp, container dày (> 4096 phần tử) là bitmap 8 KB.
+ * - Dùng làm posting list cho DefinitionIndex: mỗi phần tử là ID của một SlangWord.
+ */
+public final class IdBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final char[] NO_KEYS = new char[0];
+    private static final Container[] NO_CONTAINERS = new Container[0];
+
+    private char[] keys = NO_KEYS;          // 16 bit cao, tăng dần
+    private Container[] containers = NO_CONTAINERS;
+    private int size;                        // số container đang dùng
+
+    public IdBitmap() {}
+
+    public void add(int id) {
+        char hi = (char) (id >>> 16);
+        int i = findKey(hi);
+        if (i >= 0) {
+            containers[i] = containers[i].add((char) id);
+        } else {
+            insertContainer(-i - 1, hi, new ArrayContainer().add((char) id));
+        }
+    }
+
+    public void remove(int id) {
+        int i = findKey((char) (id >>> 16));
+        if (i < 0) return;
+        Container c = containers[i].remove((char) id);
+        if (c == null) {
+            removeContainer(i);
+        } else {
+            containers[i] = c;
+        }
+    }
+
+    public boolean contains(int id) {
+        int i = findKey((char) (id >>> 16));
+        return i >= 0 && containers[i].contains((char) id);
+    }
+
+    public IdBitmap copy() {
+        IdBitmap b = new IdBitmap();
+        b.keys = Arrays.copyOf(keys, size);
+        b.containers = new Container[size];
+        for (int i = 0; i < size; i++) b.containers[i] = containers[i].copy();
+        b.size = size;
+        return b;
+    }
+
+    /**
+     * Bản mới có thêm id, bitmap này giữ nguyên. Chỉ container chứa id bị chép,
+     * các container khác dùng chung (cho index persistent của SlangDictionary).
+     */
+    public IdBitmap with(int id) {
+        if (contains(id)) return this;
+        IdBitmap b = shallowCopy();
+        char hi = (char) (id >>> 16);
+        int i = b.findKey(hi);
+        if (i >= 0) {
+            b.containers[i] = b.containers[i].copy().add((char) id);
+        } else {
+            b.insertContainer(-i - 1, hi, new ArrayContainer().add((char) id));
+        }
+        return b;
+    }
+
+    // Như with() nhưng bỏ id
+    public IdBitmap without(int id) {
+        if (!contains(id)) return this;
+        IdBitmap b = shallowCopy();
+        int i = b.findKey((char) (id >>> 16));
+        Container c = b.containers[i].copy().remove((char) id);
+        if (c == null) {
+            b.removeContainer(i);
+        } else {
+            b.containers[i] = c;
+        }
+        return b;
+    }
+
+    private IdBitmap shallowCopy() {
+        IdBitmap b = new IdBitmap();
+        b.keys = Arrays.copyOf(keys, size + 1);
+        b.containers = Arrays.copyOf(containers, size + 1);
+        b.size = size;
+        return b;
+    }
+
+    public int cardinality() {
+        int card = 0;
+        for (int i = 0; i < size; i++) card += containers[i].cardinality();
+        return card;
+    }
+
+    public boolean isEmpty() { return size == 0; }
+
+    // Duyệt các ID theo thứ tự tăng dần
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) containers[i].forEach(keys[i] << 16, action);
+    }
+
+    // Duyệt tăng dần cho tới khi action trả về false; trả về false nếu bị dừng giữa chừng
+    public boolean forEachWhile(IntPredicate action) {
+        for (int i = 0; i < size; i++) {
+            if (!containers[i].forEachWhile(keys[i] << 16, action)) return false;
+        }
+        return true;
+    }
+
+    public int[] toArray() {
+        int[] out = new int[cardinality()];
+        int[] n = {0};
+        forEach(id -> out[n[0]++] = id);
+        return out;
+    }
+
+    // Hợp other vào bitmap này (sửa tại chỗ, không sửa other)
+    public void or(IdBitmap other) {
+        for (int j = 0; j < other.size; j++) {
+            char hi = other.keys[j];
+            int i = findKey(hi);
+            if (i >= 0) {
+                containers[i] = containers[i].or(other.containers[j]);
+            } else {
+                insertContainer(-i - 1, hi, other.containers[j].copy());
+            }
+        }
+    }
+
+    // Giao hai bitmap, trả về bitmap mới (không sửa a, b)
+    public static IdBitmap and(IdBitmap a, IdBitmap b) {
+        IdBitmap out = new IdBitmap();
+        int i = 0, j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) i++;
+            else if (a.keys[i] > b.keys[j]) j++;
+            else {
+                Container c = a.containers[i].and(b.containers[j]);
+                if (c != null) out.insertContainer(out.size, a.keys[i], c);
+                i++;
+                j++;
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IdBitmap)) return false;
+        return Arrays.equals(toArray(), ((IdBitmap) o).toArray());
+    }
+
+    @Override
+    public int hashCode() { return Arrays.hashCode(toArray()); }
+
+    @Override
+    public String toString() { return Arrays.toString(toArray()); }
+
+    private int findKey(char hi) {
+        // hầu hết dictionary chỉ có 1 container
+        if (size > 0 && keys[size - 1] == hi) return size - 1;
+        return Arrays.binarySearch(keys, 0, size, hi);
+    }
+
+    private void insertContainer(int at, char hi, Container c) {
+        if (size == keys.length) {
+            int cap = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, cap);
+            containers = Arrays.copyOf(containers, cap);
+        }
+        System.arraycopy(keys, at, keys, at + 1, size - at);
+        System.arraycopy(containers, at, containers, at + 1, size - at);
+        keys[at] = hi;
+        containers[at] = c;
+        size++;
+    }
+
+    private void removeContainer(int at) {
+        System.arraycopy(keys, at + 1, keys, at, size - at - 1);
+        System.arraycopy(containers, at + 1, containers, at, size - at - 1);
+        size--;
+        containers[size] = null;
+    }
+
+    // ---------------- Containers ----------------
+
+    private abstract static class Container {
+        abstract Container add(char v);
+
+        // trả về null nếu container rỗng sau khi xóa
+        abstract Container remove(char v);
+
+        abstract boolean contains(char v);
+
+        abstract int cardinality();
+
+        // trả về null nếu giao rỗng
+        abstract Container and(Container other);
+
+        // hợp vào container này (có thể trả về container mới), không sửa other
+        abstract Container or(Container other);
+
+        abstract void forEach(int base, IntConsumer action);
+
+        abstract boolean forEachWhile(int base, IntPredicate action);
+
+        abstract Container copy();
+    }
+
+    private static final class ArrayContainer extends Container {
+        char[] values = new char[4];
+        int card;
+
+        @Override
+        Container add(char v) {
+            int i = Arrays.binarySearch(values, 0, card, v);
+            if (i >= 0) return this;
+            if (card >= ARRAY_MAX) return toBitmap().add(v);
+            int at = -i - 1;
+            if (card == values.length) values = Arrays.copyOf(values, Math.min(ARRAY_MAX, card * 2));
+            System.arraycopy(values, at, values, at + 1, card - at);
+            values[at] = v;
+            card++;
+            return this;
+        }
+
+        @Override
+        Container remove(char v) {
+            int i = Arrays.binarySearch(values, 0, card, v);
+            if (i < 0) return this;
+            System.arraycopy(values, i + 1, values, i, card - i - 1);
+            card--;
+            return card == 0 ? null : this;
+        }
+
+        @Override
+        boolean contains(char v) { return Arrays.binarySearch(values, 0, card, v) >= 0; }
+
+        @Override
+        int cardinality() { return card; }
+
+        @Override
+        Container and(Container other) {
+            ArrayContainer out = new ArrayContainer();
+            out.values = new char[Math.max(1, Math.min(card, other.cardinality()))];
+            if (other instanceof ArrayContainer) {
+                ArrayContainer o = (ArrayContainer) other;
+                int i = 0, j = 0;
+                while (i < card && j < o.card) {
+                    if (values[i] < o.values[j]) i++;
+                    else if (values[i] > o.values[j]) j++;
+                    else {
+                        out.values[out.card++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < card; i++) {
+                    if (other.contains(values[i])) out.values[out.card++] = values[i];
+                }
+            }
+            return out.card == 0 ? null : out;
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                Container b = other.copy();
+                for (int i = 0; i < card; i++) b = b.add(values[i]);
+                return b;
+            }
+            ArrayContainer o = (ArrayContainer) other;
+            char[] merged = new char[card + o.card];
+            int i = 0, j = 0, n = 0;
+            while (i < card && j < o.card) {
+                if (values[i] < o.values[j]) merged[n++] = values[i++];
+                else if (values[i] > o.values[j]) merged[n++] = o.values[j++];
+                else {
+                    merged[n++] = values[i++];
+                    j++;
+                }
+            }
+            while (i < card) merged[n++] = values[i++];
+            while (j < o.card) merged[n++] = o.values[j++];
+            ArrayContainer out = new ArrayContainer();
+            out.values = merged;
+            out.card = n;
+            return n > ARRAY_MAX ? out.toBitmap() : out;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < card; i++) action.accept(base | values[i]);
+        }
+
+        @Override
+        boolean forEachWhile(int base, IntPredicate action) {
+            for (int i = 0; i < card; i++) {
+                if (!action.test(base | values[i])) return false;
+            }
+            return true;
+        }
+
+        @Override
+        Container copy() {
+            ArrayContainer a = new ArrayContainer();
+            a.values = Arrays.copyOf(values, Math.max(1, card));
+            a.card = card;
+            return a;
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer b = new BitmapContainer();
+            for (int i = 0; i < card; i++) b.words[values[i] >>> 6] |= 1L << values[i];
+            b.card = card;
+            return b;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        final long[] words = new long[1024];
+        int card;
+
+        @Override
+        Container add(char v) {
+            long bit = 1L << v;
+            if ((words[v >>> 6] & bit) == 0) {
+                words[v >>> 6] |= bit;
+                card++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char v) {
+            long bit = 1L << v;
+            if ((words[v >>> 6] & bit) == 0) return this;
+            words[v >>> 6] &= ~bit;
+            card--;
+            return card <= ARRAY_MAX ? toArrayContainer() : this;
+        }
+
+        @Override
+        boolean contains(char v) { return (words[v >>> 6] & (1L << v)) != 0; }
+
+        @Override
+        int cardinality() { return card; }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) return other.and(this);
+            BitmapContainer o = (BitmapContainer) other;
+            BitmapContainer out = new BitmapContainer();
+            for (int i = 0; i < words.length; i++) {
+                out.words[i] = words[i] & o.words[i];
+                out.card += Long.bitCount(out.words[i]);
+            }
+            if (out.card == 0) return null;
+            return out.card <= ARRAY_MAX ? out.toArrayContainer() : out;
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof ArrayContainer) {
+                ArrayContainer a = (ArrayContainer) other;
+                for (int i = 0; i < a.card; i++) add(a.values[i]);
+                return this;
+            }
+            BitmapContainer o = (BitmapContainer) other;
+            card = 0;
+            for (int i = 0; i < words.length; i++) {
+                words[i] |= o.words[i];
+                card += Long.bitCount(words[i]);
+            }
+            return this;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < words.length; i++) {
+                long w = words[i];
+                while (w != 0) {
+                    action.accept(base | (i << 6) | Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+        }
+
+        @Override
+        boolean forEachWhile(int base, IntPredicate action) {
+            for (int i = 0; i < words.length; i++) {
+                long w = words[i];
+                while (w != 0) {
+                    if (!action.test(base | (i << 6) | Long.numberOfTrailingZeros(w))) return false;
+                    w &= w - 1;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        Container copy() {
+            BitmapContainer b = new BitmapContainer();
+            System.arraycopy(words, 0, b.words, 0, words.length);
+            b.card = card;
+            return b;
+        }
+
+        ArrayContainer toArrayContainer() {
+            ArrayContainer a = new ArrayContainer();
+            a.values = new char[Math.max(1, card)];
+            forEach(0, v -> a.values[a.card++] = (char) v);
+            return a;
+        }
+    }
+}
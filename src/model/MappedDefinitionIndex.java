@@ -0,0 +1,182 @@
+package src.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * MappedDefinitionIndex
+ * - View read-only lên file index (format của DefinitionIndex) mà không deserialize.
+ * - Tra token = binary search trên bảng token; posting list chỉ được decode khi cần.
+ * - Buffer có thể là memory-mapped (index nằm off-heap) hoặc byte[] đọc sẵn.
+ *
+ * Lưu ý:
+ * - Map này không cho sửa; SlangDictionary sẽ chép sang PersistentMap trước lần sửa đầu tiên.
+ * - ID trong posting list khớp với ID của SlangDictionary vì cả hai theo thứ tự từ trong data file.
+ * - Mapping chỉ được giải phóng khi GC thu hồi buffer, và trên Windows không ghi đè / xóa được
+ *   file đang map. Vì vậy file index mang generation trong tên (DefinitionIndex.fileFor):
+ *   lần lưu sau ghi file của generation mới, không đụng tới file đang map; file cũ được xóa khi
+ *   hết bị giữ (lần lưu hoặc lần load sau).
+ */
+public final class MappedDefinitionIndex extends AbstractMap<String, IdBitmap> {
+
+    private final ByteBuffer buf;
+    private final int tokenCount;
+    private final int tokenOffsetsPos;
+    private final int postingOffsetsPos;
+    private final int tokenDataPos;
+    private final int postingDataPos;
+
+    private Set<Entry<String, IdBitmap>> entrySet;
+
+    private MappedDefinitionIndex(ByteBuffer buf) {
+        this.buf = buf;
+        this.tokenCount = buf.getInt(DefinitionIndex.HEADER_TOKEN_COUNT);
+        this.tokenOffsetsPos = DefinitionIndex.HEADER_SIZE;
+        this.postingOffsetsPos = tokenOffsetsPos + (tokenCount + 1) * 4;
+        this.tokenDataPos = postingOffsetsPos + (tokenCount + 1) * 4;
+        this.postingDataPos = tokenDataPos + buf.getInt(tokenOffsetsPos + tokenCount * 4);
+    }
+
+    /**
+     * Map file index vào bộ nhớ (off-heap). Trả về null nếu file không có,
+     * không khớp data file hoặc số từ khác với dictionary đang có.
+     */
+    public static MappedDefinitionIndex map(File f, long dataChecksum, int wordCount) throws IOException {
+        if (!f.exists()) return null;
+        try (RandomAccessFile raf = new RandomAccessFile(f, "r");
+             FileChannel ch = raf.getChannel()) {
+            return open(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()), dataChecksum, wordCount);
+        }
+    }
+
+    // Đọc toàn bộ file vào heap (không giữ mapping), cùng logic truy cập với map()
+    public static MappedDefinitionIndex read(File f, long dataChecksum, int wordCount) throws IOException {
+        if (!f.exists()) return null;
+        byte[] bytes = Files.readAllBytes(f.toPath());
+        return open(ByteBuffer.wrap(bytes), dataChecksum, wordCount);
+    }
+
+    private static MappedDefinitionIndex open(ByteBuffer buf, long dataChecksum, int wordCount) {
+        if (buf.capacity() < DefinitionIndex.HEADER_SIZE) return null;
+        if (buf.getInt(0) != DefinitionIndex.MAGIC) return null;
+        if (buf.getInt(4) != DefinitionIndex.FORMAT_VERSION) return null;
+        if (buf.getLong(8) != dataChecksum) return null;
+        if (buf.getInt(DefinitionIndex.HEADER_WORD_COUNT) != wordCount) return null;
+        try {
+            MappedDefinitionIndex idx = new MappedDefinitionIndex(buf);
+            // kiểm tra file không bị cắt ngang
+            int end = idx.postingDataPos + buf.getInt(idx.postingOffsetsPos + idx.tokenCount * 4);
+            return end == buf.capacity() ? idx : null;
+        } catch (IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public IdBitmap get(Object key) {
+        if (!(key instanceof String)) return null;
+        int t = findToken(((String) key).getBytes(StandardCharsets.UTF_8));
+        return t < 0 ? null : postings(t);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && findToken(((String) key).getBytes(StandardCharsets.UTF_8)) >= 0;
+    }
+
+    @Override
+    public int size() { return tokenCount; }
+
+    @Override
+    public Set<Entry<String, IdBitmap>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<String, IdBitmap>>() {
+                @Override
+                public Iterator<Entry<String, IdBitmap>> iterator() {
+                    return new Iterator<Entry<String, IdBitmap>>() {
+                        private int t = 0;
+
+                        @Override
+                        public boolean hasNext() { return t < tokenCount; }
+
+                        @Override
+                        public Entry<String, IdBitmap> next() {
+                            if (t >= tokenCount) throw new NoSuchElementException();
+                            Entry<String, IdBitmap> e = new SimpleImmutableEntry<>(token(t), postings(t));
+                            t++;
+                            return e;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() { return tokenCount; }
+            };
+        }
+        return entrySet;
+    }
+
+    // Binary search trên bảng token (so sánh byte UTF-8 không dấu, đúng thứ tự lúc ghi)
+    private int findToken(byte[] key) {
+        int lo = 0, hi = tokenCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compareToken(mid, key);
+            if (c < 0) lo = mid + 1;
+            else if (c > 0) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    private int compareToken(int t, byte[] key) {
+        int start = tokenDataPos + buf.getInt(tokenOffsetsPos + t * 4);
+        int len = tokenDataPos + buf.getInt(tokenOffsetsPos + (t + 1) * 4) - start;
+        int n = Math.min(len, key.length);
+        for (int i = 0; i < n; i++) {
+            int c = Integer.compare(buf.get(start + i) & 0xFF, key[i] & 0xFF);
+            if (c != 0) return c;
+        }
+        return Integer.compare(len, key.length);
+    }
+
+    private String token(int t) {
+        int start = buf.getInt(tokenOffsetsPos + t * 4);
+        int end = buf.getInt(tokenOffsetsPos + (t + 1) * 4);
+        return decode(tokenDataPos + start, end - start);
+    }
+
+    // Decode posting list (count + delta varint) thành bitmap mới
+    private IdBitmap postings(int t) {
+        int[] pos = { postingDataPos + buf.getInt(postingOffsetsPos + t * 4) };
+        int n = readVarInt(pos);
+        IdBitmap bucket = new IdBitmap();
+        int id = 0;
+        for (int i = 0; i < n; i++) {
+            id += readVarInt(pos);
+            bucket.add(id);
+        }
+        return bucket;
+    }
+
+    private int readVarInt(int[] pos) {
+        int v = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = buf.get(pos[0]++);
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+    }
+
+    private String decode(int at, int len) {
+        byte[] bytes = new byte[len];
+        for (int i = 0; i < len; i++) bytes[i] = buf.get(at + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,387 @@
+package src.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * PersistentMap
+ * - Map bất biến dạng hash array mapped trie (HAMT, 32 nhánh mỗi tầng theo 5 bit hash).
+ * - plus()/minus() trả về map mới, chỉ chép các node trên đường đi (O(log32 n)),
+ *   phần còn lại dùng chung với map cũ nên giữ nhiều phiên bản cùng lúc rất rẻ.
+ * - of() dựng cả map một lượt từ Map có sẵn (O(n)), dùng khi load / build index.
+ * - Các hàm sửa của Map (put, remove, ...) ném UnsupportedOperationException.
+ */
+public final class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MAX_SHIFT = 30; // shift > 30 nghĩa là đã dùng hết 32 bit hash
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+
+    private final BitmapNode root; // null khi rỗng
+    private final int size;
+
+    private PersistentMap(BitmapNode root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    // Dựng map từ các entry của m; trả về chính m nếu nó đã là PersistentMap
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> of(Map<? extends K, ? extends V> m) {
+        if (m instanceof PersistentMap) return (PersistentMap<K, V>) m;
+        if (m.isEmpty()) return empty();
+        Leaf[] leaves = new Leaf[m.size()];
+        int n = 0;
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+            leaves[n++] = new Leaf(hash(e.getKey()), e.getKey(), e.getValue());
+        }
+        return new PersistentMap<>(buildNode(leaves, 0, n, 0, new Leaf[n]), n);
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Leaf leaf = find(key);
+        return leaf == null ? null : (V) leaf.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) != null;
+    }
+
+    // Map mới có key -> value
+    public PersistentMap<K, V> plus(K key, V value) {
+        Leaf leaf = new Leaf(hash(key), key, value);
+        if (root == null) {
+            return new PersistentMap<>(new BitmapNode(bit(leaf.hash, 0), new Object[]{leaf}), 1);
+        }
+        boolean[] added = new boolean[1];
+        BitmapNode r = (BitmapNode) plus(root, 0, leaf, added);
+        if (r == root) return this;
+        return new PersistentMap<>(r, added[0] ? size + 1 : size);
+    }
+
+    // Map mới không có key
+    public PersistentMap<K, V> minus(Object key) {
+        if (root == null) return this;
+        Object r = minus(root, 0, hash(key), key);
+        if (r == root) return this;
+        if (r == null) return empty();
+        return new PersistentMap<>((BitmapNode) r, size - 1);
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() { return new LeafIterator<>(root); }
+
+            @Override
+            public int size() { return size; }
+
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof Map.Entry)) return false;
+                Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+                Leaf leaf = find(e.getKey());
+                return leaf != null && (leaf.value == null ? e.getValue() == null : leaf.value.equals(e.getValue()));
+            }
+        };
+    }
+
+    // ---------------- Nodes ----------------
+
+    // Một entry; cũng là Map.Entry trả ra khi duyệt
+    private static final class Leaf implements Map.Entry<Object, Object> {
+        final int hash;
+        final Object key;
+        final Object value;
+
+        Leaf(int hash, Object key, Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public Object getKey() { return key; }
+
+        @Override
+        public Object getValue() { return value; }
+
+        @Override
+        public Object setValue(Object value) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) return false;
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return eq(key, e.getKey()) && eq(value, e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() { return key + "=" + value; }
+    }
+
+    // slots[i] là Leaf hoặc node con, theo thứ tự các bit bật trong bitmap
+    private static final class BitmapNode {
+        final int bitmap;
+        final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        int index(int bit) { return Integer.bitCount(bitmap & (bit - 1)); }
+    }
+
+    // Các key trùng toàn bộ 32 bit hash
+    private static final class CollisionNode {
+        final int hash;
+        final Leaf[] leaves;
+
+        CollisionNode(int hash, Leaf[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+    }
+
+    private static int hash(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & 31);
+    }
+
+    private static boolean eq(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private Leaf find(Object key) {
+        if (root == null) return null;
+        int h = hash(key);
+        Object node = root;
+        int shift = 0;
+        while (true) {
+            if (node instanceof BitmapNode) {
+                BitmapNode bn = (BitmapNode) node;
+                int bit = bit(h, shift);
+                if ((bn.bitmap & bit) == 0) return null;
+                node = bn.slots[bn.index(bit)];
+                shift += BITS;
+            } else if (node instanceof Leaf) {
+                Leaf leaf = (Leaf) node;
+                return leaf.hash == h && eq(leaf.key, key) ? leaf : null;
+            } else {
+                for (Leaf leaf : ((CollisionNode) node).leaves) {
+                    if (eq(leaf.key, key)) return leaf;
+                }
+                return null;
+            }
+        }
+    }
+
+    private static Object plus(Object node, int shift, Leaf leaf, boolean[] added) {
+        if (node instanceof CollisionNode) {
+            CollisionNode cn = (CollisionNode) node;
+            for (int i = 0; i < cn.leaves.length; i++) {
+                if (eq(cn.leaves[i].key, leaf.key)) {
+                    if (cn.leaves[i].value == leaf.value) return cn;
+                    Leaf[] copy = cn.leaves.clone();
+                    copy[i] = leaf;
+                    return new CollisionNode(cn.hash, copy);
+                }
+            }
+            Leaf[] grown = Arrays.copyOf(cn.leaves, cn.leaves.length + 1);
+            grown[cn.leaves.length] = leaf;
+            added[0] = true;
+            return new CollisionNode(cn.hash, grown);
+        }
+        BitmapNode bn = (BitmapNode) node;
+        int bit = bit(leaf.hash, shift);
+        int i = bn.index(bit);
+        if ((bn.bitmap & bit) == 0) {
+            Object[] slots = new Object[bn.slots.length + 1];
+            System.arraycopy(bn.slots, 0, slots, 0, i);
+            System.arraycopy(bn.slots, i, slots, i + 1, bn.slots.length - i);
+            slots[i] = leaf;
+            added[0] = true;
+            return new BitmapNode(bn.bitmap | bit, slots);
+        }
+        Object slot = bn.slots[i];
+        Object replaced;
+        if (slot instanceof Leaf) {
+            Leaf existing = (Leaf) slot;
+            if (existing.hash == leaf.hash && eq(existing.key, leaf.key)) {
+                if (existing.value == leaf.value) return bn;
+                replaced = leaf;
+            } else {
+                replaced = merge(existing, leaf, shift + BITS);
+                added[0] = true;
+            }
+        } else {
+            replaced = plus(slot, shift + BITS, leaf, added);
+            if (replaced == slot) return bn;
+        }
+        Object[] slots = bn.slots.clone();
+        slots[i] = replaced;
+        return new BitmapNode(bn.bitmap, slots);
+    }
+
+    // Node chứa hai leaf khác key, bắt đầu từ tầng shift
+    private static Object merge(Leaf a, Leaf b, int shift) {
+        if (shift > MAX_SHIFT) return new CollisionNode(a.hash, new Leaf[]{a, b});
+        int ba = bit(a.hash, shift), bb = bit(b.hash, shift);
+        if (ba == bb) return new BitmapNode(ba, new Object[]{merge(a, b, shift + BITS)});
+        return new BitmapNode(ba | bb, Integer.compareUnsigned(ba, bb) < 0 ? new Object[]{a, b} : new Object[]{b, a});
+    }
+
+    /**
+     * Trả về node mới không có key, chính node nếu không đổi, null nếu rỗng.
+     * Node con chỉ còn một leaf được thay bằng chính leaf đó để cây luôn gọn
+     * (trừ gốc, luôn là BitmapNode).
+     */
+    private static Object minus(Object node, int shift, int h, Object key) {
+        if (node instanceof CollisionNode) {
+            CollisionNode cn = (CollisionNode) node;
+            for (int i = 0; i < cn.leaves.length; i++) {
+                if (eq(cn.leaves[i].key, key)) {
+                    if (cn.leaves.length == 2) return cn.leaves[1 - i];
+                    Leaf[] shrunk = new Leaf[cn.leaves.length - 1];
+                    System.arraycopy(cn.leaves, 0, shrunk, 0, i);
+                    System.arraycopy(cn.leaves, i + 1, shrunk, i, shrunk.length - i);
+                    return new CollisionNode(cn.hash, shrunk);
+                }
+            }
+            return cn;
+        }
+        BitmapNode bn = (BitmapNode) node;
+        int bit = bit(h, shift);
+        if ((bn.bitmap & bit) == 0) return bn;
+        int i = bn.index(bit);
+        Object slot = bn.slots[i];
+        Object replaced;
+        if (slot instanceof Leaf) {
+            Leaf leaf = (Leaf) slot;
+            if (leaf.hash != h || !eq(leaf.key, key)) return bn;
+            replaced = null;
+        } else {
+            replaced = minus(slot, shift + BITS, h, key);
+            if (replaced == slot) return bn;
+        }
+        if (replaced == null) {
+            if (bn.slots.length == 1) return null;
+            if (bn.slots.length == 2 && shift > 0 && bn.slots[1 - i] instanceof Leaf) return bn.slots[1 - i];
+            Object[] slots = new Object[bn.slots.length - 1];
+            System.arraycopy(bn.slots, 0, slots, 0, i);
+            System.arraycopy(bn.slots, i + 1, slots, i, slots.length - i);
+            return new BitmapNode(bn.bitmap & ~bit, slots);
+        }
+        if (replaced instanceof Leaf && bn.slots.length == 1 && shift > 0) return replaced;
+        Object[] slots = bn.slots.clone();
+        slots[i] = replaced;
+        return new BitmapNode(bn.bitmap, slots);
+    }
+
+    // ---------------- Bulk build ----------------
+
+    // Chia leaves[from, to) theo 5 bit hash ở tầng shift (counting sort qua tmp) rồi dựng từng nhánh
+    private static BitmapNode buildNode(Leaf[] leaves, int from, int to, int shift, Leaf[] tmp) {
+        int[] start = new int[33];
+        for (int i = from; i < to; i++) start[((leaves[i].hash >>> shift) & 31) + 1]++;
+        int bitmap = 0;
+        for (int c = 0; c < 32; c++) {
+            if (start[c + 1] > 0) bitmap |= 1 << c;
+            start[c + 1] += start[c];
+        }
+        int[] next = start.clone();
+        for (int i = from; i < to; i++) tmp[from + next[(leaves[i].hash >>> shift) & 31]++] = leaves[i];
+        System.arraycopy(tmp, from, leaves, from, to - from);
+
+        Object[] slots = new Object[Integer.bitCount(bitmap)];
+        int k = 0;
+        for (int c = 0; c < 32; c++) {
+            int s = from + start[c], e = from + start[c + 1];
+            if (s == e) continue;
+            if (e - s == 1) {
+                slots[k++] = leaves[s];
+            } else if (shift + BITS > MAX_SHIFT) {
+                slots[k++] = new CollisionNode(leaves[s].hash, Arrays.copyOfRange(leaves, s, e));
+            } else {
+                slots[k++] = buildNode(leaves, s, e, shift + BITS, tmp);
+            }
+        }
+        return new BitmapNode(bitmap, slots);
+    }
+
+    // ---------------- Iteration ----------------
+
+    // Duyệt theo chiều sâu bằng stack tường minh (độ sâu tối đa 8 tầng)
+    private static final class LeafIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        private final Object[][] stack = new Object[9][];
+        private final int[] pos = new int[9];
+        private int depth = -1;
+        private Leaf next;
+
+        LeafIterator(BitmapNode root) {
+            if (root != null) push(root.slots);
+            advance();
+        }
+
+        private void push(Object[] slots) {
+            stack[++depth] = slots;
+            pos[depth] = 0;
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                if (pos[depth] == stack[depth].length) {
+                    depth--;
+                    continue;
+                }
+                Object o = stack[depth][pos[depth]++];
+                if (o instanceof Leaf) {
+                    next = (Leaf) o;
+                    return;
+                }
+                push(o instanceof BitmapNode ? ((BitmapNode) o).slots : ((CollisionNode) o).leaves);
+            }
+        }
+
+        @Override
+        public boolean hasNext() { return next != null; }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (next == null) throw new NoSuchElementException();
+            Leaf out = next;
+            advance();
+            return (Map.Entry<K, V>) (Map.Entry<?, ?>) out;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package src.model;
+
+import java.util.List;
+
+/**
+ * PersistentVector
+ * - Mảng bất biến dạng trie 32 nhánh (index theo từng 5 bit), dùng cho bảng id -> SlangWord
+ *   và mảng dày các slang còn sống (chọn ngẫu nhiên).
+ * - plus() (thêm cuối), pop() (bỏ cuối) và with() (ghi đè một vị trí) trả về vector mới, chỉ chép
+ *   các node trên đường đi (O(log32 n)); phần còn lại dùng chung với vector cũ.
+ * - of() dựng cả vector một lượt từ List (O(n)).
+ */
+public final class PersistentVector<T> {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(new Object[WIDTH], 0, 0);
+
+    private final Object[] root;
+    private final int size;
+    private final int shift; // BITS * (số tầng - 1); 0 khi root là lá
+
+    private PersistentVector(Object[] root, int size, int shift) {
+        this.root = root;
+        this.size = size;
+        this.shift = shift;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentVector<T> empty() {
+        return (PersistentVector<T>) EMPTY;
+    }
+
+    public static <T> PersistentVector<T> of(List<? extends T> items) {
+        int n = items.size();
+        if (n == 0) return empty();
+        // tầng lá
+        Object[] level = new Object[(n + MASK) >>> BITS];
+        for (int i = 0; i < level.length; i++) {
+            Object[] leaf = new Object[WIDTH];
+            for (int j = 0; j < WIDTH && (i << BITS) + j < n; j++) leaf[j] = items.get((i << BITS) + j);
+            level[i] = leaf;
+        }
+        int shift = 0;
+        while (level.length > 1) {
+            Object[] parents = new Object[(level.length + MASK) >>> BITS];
+            for (int i = 0; i < parents.length; i++) {
+                Object[] node = new Object[WIDTH];
+                System.arraycopy(level, i << BITS, node, 0, Math.min(WIDTH, level.length - (i << BITS)));
+                parents[i] = node;
+            }
+            level = parents;
+            shift += BITS;
+        }
+        return new PersistentVector<>((Object[]) level[0], n, shift);
+    }
+
+    public int size() { return size; }
+
+    @SuppressWarnings("unchecked")
+    public T get(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("index " + i + ", size " + size);
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(i >>> level) & MASK];
+        }
+        return (T) node[i & MASK];
+    }
+
+    // Vector mới với phần tử i = value
+    public PersistentVector<T> with(int i, T value) {
+        if (i == size) return plus(value);
+        if (i < 0 || i > size) throw new IndexOutOfBoundsException("index " + i + ", size " + size);
+        return new PersistentVector<>(set(root, shift, i, value), size, shift);
+    }
+
+    // Vector mới có thêm value ở cuối
+    public PersistentVector<T> plus(T value) {
+        if (size == 1 << (shift + BITS)) {
+            // cây đầy: thêm một tầng gốc
+            Object[] newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            return new PersistentVector<>(set(newRoot, shift + BITS, size, value), size + 1, shift + BITS);
+        }
+        return new PersistentVector<>(set(root, shift, size, value), size + 1, shift);
+    }
+
+    // Vector mới bỏ phần tử cuối (số tầng giữ nguyên, node cuối có thể còn thừa chỗ trống)
+    public PersistentVector<T> pop() {
+        if (size == 0) throw new IllegalStateException("vector rỗng");
+        if (size == 1) return empty();
+        return new PersistentVector<>(set(root, shift, size - 1, null), size - 1, shift);
+    }
+
+    // Chép đường đi tới vị trí i (tạo node mới nếu chưa có) và ghi value
+    private static Object[] set(Object[] node, int level, int i, Object value) {
+        Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        if (level == 0) {
+            copy[i & MASK] = value;
+        } else {
+            int slot = (i >>> level) & MASK;
+            copy[slot] = set((Object[]) copy[slot], level - BITS, i, value);
+        }
+        return copy;
+    }
+}
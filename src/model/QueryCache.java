@@ -0,0 +1,182 @@
+package src.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * QueryCache - cache LRU kết quả tìm theo definition của SlangDictionary.
+ * - Khóa là query đã normalize; giá trị là mọi slang có definition chứa query (theo thứ tự ID),
+ *   tức phần đắt nhất của tìm theo definition (giao posting n-gram + lọc substring).
+ *   Cả findByDefinition(keyword) lẫn bản xếp hạng BM25 top-k dùng chung entry; bản xếp hạng
+ *   chỉ chấm điểm trong tập khớp nên k khác nhau không cần entry riêng.
+ * - Giới hạn theo cả số entry và số byte ước lượng; entry ít dùng nhất bị bỏ trước.
+ * - Invalidate chính xác: mỗi query được đăng ký dưới n-gram đầu tiên của nó (query 1 ký tự
+ *   nằm trong nhóm riêng). Khi một slang bị thêm/sửa/xóa, chỉ các query đăng ký dưới n-gram
+ *   của definition cũ/mới mới được xét, và chỉ bị bỏ nếu definition đó thật sự chứa query.
+ *   Thay cả dictionary (clear, reset, restore checkpoint, bulk load) thì xóa toàn bộ.
+ * - Chống ghi kết quả cũ: reader lấy generation() trước khi đọc Version, put() bỏ qua nếu
+ *   giữa chừng đã có lần invalidate nào.
+ *
+ * Thread-safe: các thao tác trên map giữ monitor của cache (ngắn, O(1) với get/put).
+ */
+final class QueryCache {
+
+    // Ước lượng overhead một entry: String + Entry + node LinkedHashMap + đăng ký theo n-gram
+    private static final long ENTRY_OVERHEAD = 200;
+    private static final long BYTES_PER_MATCH = 4; // tham chiếu nén (compressed oops)
+
+    private static final class Entry {
+        final SlangWord[] matches;
+        final long bytes;
+
+        Entry(SlangWord[] matches, long bytes) {
+            this.matches = matches;
+            this.bytes = bytes;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // thứ tự LRU
+    private final Map<String, Set<String>> byGram = new HashMap<>();
+    private final Set<String> shortQueries = new HashSet<>(); // query < 2 ký tự: không có n-gram
+    private int maxEntries;
+    private long maxBytes;
+    private long bytes;
+    private volatile long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    QueryCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    long generation() {
+        return generation;
+    }
+
+    // Danh sách khớp đã cache (không được sửa), null nếu chưa có
+    synchronized SlangWord[] get(String query) {
+        Entry e = entries.get(query);
+        if (e == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return e.matches;
+    }
+
+    // Lưu kết quả tính trên phiên bản đọc sau khi lấy gen; bỏ qua nếu cache đã bị invalidate từ đó
+    synchronized void put(String query, SlangWord[] matches, long gen) {
+        if (gen != generation || maxEntries <= 0) return;
+        long size = ENTRY_OVERHEAD + 2L * query.length() + BYTES_PER_MATCH * matches.length;
+        if (size > maxBytes) return;
+        Entry old = entries.put(query, new Entry(matches, size));
+        if (old != null) bytes -= old.bytes;
+        else register(query);
+        bytes += size;
+        evictOverflow();
+    }
+
+    /**
+     * Bỏ các query mà kết quả có thể đổi vì các slang `touched` (bản trước và sau khi sửa;
+     * phần tử null được bỏ qua). Gọi sau khi phiên bản mới đã được publish.
+     */
+    synchronized void invalidate(SlangWord... touched) {
+        generation++;
+        if (entries.isEmpty()) return;
+        Set<String> candidates = new HashSet<>(shortQueries);
+        for (SlangWord sw : touched) {
+            if (sw == null) continue;
+            for (String gram : DefinitionIndex.gramsOf(sw)) {
+                Set<String> queries = byGram.get(gram);
+                if (queries != null) candidates.addAll(queries);
+            }
+        }
+        List<String> affected = new ArrayList<>();
+        for (String query : candidates) {
+            for (SlangWord sw : touched) {
+                if (sw != null && DefinitionIndex.containsSubstring(sw, query)) {
+                    affected.add(query);
+                    break;
+                }
+            }
+        }
+        for (String query : affected) {
+            bytes -= entries.remove(query).bytes;
+            unregister(query);
+            invalidations.increment();
+        }
+    }
+
+    // Xóa toàn bộ (dictionary bị thay cả phiên bản)
+    synchronized void clear() {
+        generation++;
+        entries.clear();
+        byGram.clear();
+        shortQueries.clear();
+        bytes = 0;
+    }
+
+    synchronized void setLimits(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        evictOverflow();
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            it.remove();
+            bytes -= eldest.getValue().bytes;
+            unregister(eldest.getKey());
+            evictions.increment();
+        }
+    }
+
+    // Query nằm trong mọi definition khớp, nên n-gram đầu của nó cũng thuộc gramsOf() của definition đó
+    private static String firstGram(String query) {
+        if (query.length() < 2) return null;
+        return query.substring(0, query.length() < 3 ? 2 : 3);
+    }
+
+    private void register(String query) {
+        String gram = firstGram(query);
+        if (gram == null) shortQueries.add(query);
+        else byGram.computeIfAbsent(gram, g -> new HashSet<>()).add(query);
+    }
+
+    private void unregister(String query) {
+        String gram = firstGram(query);
+        if (gram == null) {
+            shortQueries.remove(query);
+            return;
+        }
+        Set<String> queries = byGram.get(gram);
+        if (queries != null && queries.remove(query) && queries.isEmpty()) byGram.remove(gram);
+    }
+
+    // ---------------- Metrics ----------------
+
+    long hits() { return hits.sum(); }
+
+    long misses() { return misses.sum(); }
+
+    long evictions() { return evictions.sum(); }
+
+    long invalidations() { return invalidations.sum(); }
+
+    synchronized int size() { return entries.size(); }
+
+    synchronized long bytes() { return bytes; }
+}
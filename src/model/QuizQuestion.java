@@ -0,0 +1,47 @@
+package src.model;
+
+import java.util.List;
+
+/**
+ * QuizQuestion
+ * - Một câu hỏi quiz dựng sẵn: đề bài, các lựa chọn (đã xáo) và vị trí đáp án đúng.
+ * - Loại A: cho slang, chọn definition; loại B: cho definition, chọn slang.
+ */
+public class QuizQuestion {
+    private final String prompt;
+    private final List<String> options;
+    private final int correctIndex;
+    private final SlangWord answer;
+
+    public QuizQuestion(String prompt, List<String> options, int correctIndex, SlangWord answer) {
+        this.prompt = prompt;
+        this.options = List.copyOf(options);
+        this.correctIndex = correctIndex;
+        this.answer = answer;
+    }
+
+    public String getPrompt() {
+        return prompt;
+    }
+
+    public List<String> getOptions() {
+        return options;
+    }
+
+    public int getCorrectIndex() {
+        return correctIndex;
+    }
+
+    public SlangWord getAnswer() {
+        return answer;
+    }
+
+    public boolean isCorrect(int choice) {
+        return choice == correctIndex;
+    }
+
+    @Override
+    public String toString() {
+        return prompt + " " + options + " -> " + correctIndex;
+    }
+}
@@ -0,0 +1,340 @@
+package src.model;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReviewScheduler (spaced repetition kiểu SM-2)
+ * - Theo dõi từng slang đã xuất hiện trong quiz: số lần hỏi, số lần đúng, số lần đúng liên tiếp,
+ *   khoảng cách ôn (ngày), hệ số dễ (ease) và thời điểm đến hạn.
+ * - Lưu dạng mảng nguyên thủy song song, khóa là hash 64 bit của key slang trong một bảng
+ *   băm open addressing (không boxing, vài chục byte mỗi từ); hash trùng thì so thêm key gốc.
+ *   ID của SlangDictionary không dùng được vì đổi sau mỗi lần compact.
+ * - Min-heap có chỉ mục theo thời điểm đến hạn: lấy từ đến hạn / cập nhật sau mỗi câu trả lời O(log n).
+ * - Persist ra data/review_stats.bin (ghi atomic qua AtomicFile).
+ *
+ * Thread-safe: mọi hàm public đều synchronized (quiz sinh câu hỏi ở thread nền, ghi file ở thread khác).
+ */
+public final class ReviewScheduler {
+
+    public static final String FILE_PATH = "data/review_stats.bin";
+
+    static final int MAGIC = 0x534C5256; // "SLRV"
+    static final int VERSION = 1;
+
+    static final float DEFAULT_EASE = 2.5f;
+    static final float MIN_EASE = 1.3f;
+    static final long RELEARN_MILLIS = TimeUnit.MINUTES.toMillis(1); // trả lời sai: hỏi lại sớm
+    static final long LEASE_MILLIS = TimeUnit.MINUTES.toMillis(10);  // đã đưa vào câu hỏi, chờ trả lời
+
+    private static final long EMPTY = 0L; // khóa 0 được đổi thành 1 trong keyOf()
+
+    // bảng băm: key -> slot (+1, 0 = trống)
+    private long[] tableKeys = new long[16];
+    private int[] tableSlots = new int[16];
+
+    // dữ liệu theo slot
+    private long[] keys = new long[16];
+    private String[] words = new String[16];
+    private int[] attempts = new int[16];
+    private int[] corrects = new int[16];
+    private int[] repetitions = new int[16];
+    private int[] intervalDays = new int[16];
+    private float[] ease = new float[16];
+    private long[] due = new long[16];
+    private int size;
+
+    // min-heap các slot theo due; heapPos[slot] = vị trí trong heap
+    private int[] heap = new int[16];
+    private int[] heapPos = new int[16];
+
+    public synchronized int size() { return size; }
+
+    /**
+     * Ghi nhận một câu trả lời cho slang `word` với chất lượng quality (0..5, >= 3 là đúng) theo SM-2.
+     * Từ chưa theo dõi được thêm mới.
+     */
+    public synchronized void review(String word, int quality, long now) {
+        int slot = slotOf(word, true);
+        quality = Math.max(0, Math.min(5, quality));
+        attempts[slot]++;
+        if (quality >= 3) {
+            corrects[slot]++;
+            int reps = repetitions[slot];
+            intervalDays[slot] = reps == 0 ? 1 : reps == 1 ? 6 : Math.round(intervalDays[slot] * ease[slot]);
+            repetitions[slot] = reps + 1;
+            due[slot] = now + TimeUnit.DAYS.toMillis(intervalDays[slot]);
+        } else {
+            repetitions[slot] = 0;
+            intervalDays[slot] = 0;
+            due[slot] = now + RELEARN_MILLIS;
+        }
+        int q = 5 - quality;
+        ease[slot] = Math.max(MIN_EASE, ease[slot] + (0.1f - q * (0.08f + q * 0.02f)));
+        siftUp(heapPos[slot]);
+        siftDown(heapPos[slot]);
+    }
+
+    /**
+     * Tối đa max slang đã đến hạn ôn (due <= now), đến hạn sớm nhất trước. Các từ trả ra được
+     * "giữ chỗ" LEASE_MILLIS để không bị chọn lại khi câu hỏi còn nằm trong hàng đợi chưa trả lời.
+     */
+    public synchronized List<String> pollDue(long now, int max) {
+        List<String> out = new ArrayList<>(Math.min(max, size));
+        while (out.size() < max && size > 0 && due[heap[0]] <= now) {
+            int slot = heap[0];
+            out.add(words[slot]);
+            due[slot] = now + LEASE_MILLIS;
+            siftDown(0);
+        }
+        return out;
+    }
+
+    // Bỏ theo dõi (slang đã bị xóa khỏi dictionary)
+    public synchronized void forget(String word) {
+        int slot = slotOf(word, false);
+        if (slot < 0) return;
+        removeFromTable(slot);
+        int last = size - 1;
+        // bỏ khỏi heap
+        int at = heapPos[slot];
+        swapHeap(at, last);
+        // dời slot cuối vào chỗ trống để mảng luôn liền
+        if (slot != last) moveSlot(last, slot);
+        size--;
+        if (at < size) {
+            siftUp(at);
+            siftDown(at);
+        }
+    }
+
+    // Thống kê của một slang: {attempts, corrects, repetitions, intervalDays}; null nếu chưa theo dõi
+    public synchronized int[] statsOf(String word) {
+        int slot = slotOf(word, false);
+        if (slot < 0) return null;
+        return new int[]{attempts[slot], corrects[slot], repetitions[slot], intervalDays[slot]};
+    }
+
+    public synchronized long dueOf(String word) {
+        int slot = slotOf(word, false);
+        return slot < 0 ? -1 : due[slot];
+    }
+
+    // ---------------- Persistence ----------------
+
+    public static ReviewScheduler load() {
+        return load(Paths.get(FILE_PATH));
+    }
+
+    // File không có hoặc hỏng: bắt đầu rỗng (thống kê quiz không đáng để chặn khởi động)
+    public static ReviewScheduler load(Path file) {
+        ReviewScheduler s = new ReviewScheduler();
+        if (!Files.exists(file)) return s;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.err.println(file + ": sai định dạng, bỏ qua thống kê quiz");
+                return s;
+            }
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                byte[] w = new byte[in.readInt()];
+                in.readFully(w);
+                int slot = s.slotOf(new String(w, StandardCharsets.UTF_8), true);
+                s.attempts[slot] = in.readInt();
+                s.corrects[slot] = in.readInt();
+                s.repetitions[slot] = in.readInt();
+                s.intervalDays[slot] = in.readInt();
+                s.ease[slot] = in.readFloat();
+                s.due[slot] = in.readLong();
+                s.siftUp(s.heapPos[slot]);
+            }
+        } catch (IOException e) {
+            System.err.println(file + ": không đọc được thống kê quiz (" + e + ")");
+            return new ReviewScheduler();
+        }
+        return s;
+    }
+
+    public void save() throws IOException {
+        save(Paths.get(FILE_PATH));
+    }
+
+    // Chụp dữ liệu dưới lock rồi ghi file ngoài lock
+    public void save(Path file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        synchronized (this) {
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            for (int slot = 0; slot < size; slot++) {
+                byte[] w = words[slot].getBytes(StandardCharsets.UTF_8);
+                out.writeInt(w.length);
+                out.write(w);
+                out.writeInt(attempts[slot]);
+                out.writeInt(corrects[slot]);
+                out.writeInt(repetitions[slot]);
+                out.writeInt(intervalDays[slot]);
+                out.writeFloat(ease[slot]);
+                out.writeLong(due[slot]);
+            }
+            out.flush();
+        }
+        AtomicFile.write(file, bytes::writeTo);
+    }
+
+    // ---------------- Hash table ----------------
+
+    // FNV-1a 64 bit của key slang
+    static long keyOf(String word) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < word.length(); i++) {
+            h ^= word.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h == EMPTY ? 1 : h;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // Slot của word; -1 nếu chưa có và create == false.
+    // Hai word khác nhau có thể trùng hash: so cả word, lệch thì dò tiếp
+    private int slotOf(String word, boolean create) {
+        long key = keyOf(word);
+        int mask = tableKeys.length - 1;
+        int i = mix(key) & mask;
+        while (tableKeys[i] != EMPTY) {
+            if (tableKeys[i] == key && words[tableSlots[i] - 1].equals(word)) return tableSlots[i] - 1;
+            i = (i + 1) & mask;
+        }
+        if (!create) return -1;
+        int slot = size++;
+        ensureCapacity(size);
+        keys[slot] = key;
+        words[slot] = word;
+        // slot có thể còn số liệu cũ của slot cuối bị dời đi trong forget()
+        attempts[slot] = 0;
+        corrects[slot] = 0;
+        repetitions[slot] = 0;
+        intervalDays[slot] = 0;
+        due[slot] = 0;
+        ease[slot] = DEFAULT_EASE;
+        heap[slot] = slot;
+        heapPos[slot] = slot;
+        if (size * 2 > tableKeys.length) {
+            rehash(tableKeys.length * 2);
+        } else {
+            tableKeys[i] = key;
+            tableSlots[i] = slot + 1;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        tableKeys = new long[capacity];
+        tableSlots = new int[capacity];
+        for (int slot = 0; slot < size; slot++) putTable(keys[slot], slot);
+    }
+
+    // Thêm slot (chưa có trong bảng) vào ô trống đầu tiên
+    private void putTable(long key, int slot) {
+        int mask = tableKeys.length - 1;
+        int i = mix(key) & mask;
+        while (tableKeys[i] != EMPTY) i = (i + 1) & mask;
+        tableKeys[i] = key;
+        tableSlots[i] = slot + 1;
+    }
+
+    // Vị trí của slot trong bảng băm (tìm theo slot, không theo hash vì hash có thể trùng)
+    private int tableIndexOf(int slot) {
+        int mask = tableKeys.length - 1;
+        int i = mix(keys[slot]) & mask;
+        while (tableSlots[i] != slot + 1) i = (i + 1) & mask;
+        return i;
+    }
+
+    // Xóa khỏi bảng băm linear probing: dời lại các phần tử phía sau trong cùng cụm
+    private void removeFromTable(int slot) {
+        int mask = tableKeys.length - 1;
+        int i = tableIndexOf(slot);
+        tableKeys[i] = EMPTY;
+        tableSlots[i] = 0;
+        for (int j = (i + 1) & mask; tableKeys[j] != EMPTY; j = (j + 1) & mask) {
+            long k = tableKeys[j];
+            int s = tableSlots[j];
+            tableKeys[j] = EMPTY;
+            tableSlots[j] = 0;
+            putTable(k, s - 1);
+        }
+    }
+
+    private void moveSlot(int from, int to) {
+        tableSlots[tableIndexOf(from)] = to + 1; // trỏ ô của from trong bảng băm sang slot mới
+        keys[to] = keys[from];
+        words[to] = words[from];
+        attempts[to] = attempts[from];
+        corrects[to] = corrects[from];
+        repetitions[to] = repetitions[from];
+        intervalDays[to] = intervalDays[from];
+        ease[to] = ease[from];
+        due[to] = due[from];
+        heapPos[to] = heapPos[from];
+        heap[heapPos[to]] = to;
+        words[from] = null;
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= keys.length) return;
+        int cap = Math.max(n, keys.length * 2);
+        keys = Arrays.copyOf(keys, cap);
+        words = Arrays.copyOf(words, cap);
+        attempts = Arrays.copyOf(attempts, cap);
+        corrects = Arrays.copyOf(corrects, cap);
+        repetitions = Arrays.copyOf(repetitions, cap);
+        intervalDays = Arrays.copyOf(intervalDays, cap);
+        ease = Arrays.copyOf(ease, cap);
+        due = Arrays.copyOf(due, cap);
+        heap = Arrays.copyOf(heap, cap);
+        heapPos = Arrays.copyOf(heapPos, cap);
+    }
+
+    // ---------------- Indexed heap ----------------
+
+    private void siftUp(int at) {
+        while (at > 0) {
+            int parent = (at - 1) >>> 1;
+            if (due[heap[parent]] <= due[heap[at]]) return;
+            swapHeap(at, parent);
+            at = parent;
+        }
+    }
+
+    private void siftDown(int at) {
+        while (true) {
+            int left = 2 * at + 1;
+            if (left >= size) return;
+            int smallest = left + 1 < size && due[heap[left + 1]] < due[heap[left]] ? left + 1 : left;
+            if (due[heap[at]] <= due[heap[smallest]]) return;
+            swapHeap(at, smallest);
+            at = smallest;
+        }
+    }
+
+    private void swapHeap(int a, int b) {
+        int sa = heap[a], sb = heap[b];
+        heap[a] = sb;
+        heap[b] = sa;
+        heapPos[sb] = a;
+        heapPos[sa] = b;
+    }
+}
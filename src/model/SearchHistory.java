@@ -0,0 +1,82 @@
+package src.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SearchHistory
+ * - Lịch sử tìm kiếm giới hạn capacity entry trên một ring buffer: thêm vào đầu O(1),
+ *   đầy thì entry cũ nhất bị ghi đè, không dịch mảng.
+ * - Tìm lại đúng query (cùng loại) vừa tìm không tạo entry mới mà chỉ thay entry mới nhất
+ *   (kết quả có thể đã khác).
+ * - Chỉ số 0 là entry mới nhất. Không thread-safe: caller tự đồng bộ.
+ */
+public final class SearchHistory {
+
+    private final SearchHistoryEntry[] ring;
+    private int head = -1; // vị trí entry mới nhất
+    private int size;
+
+    public SearchHistory(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity phải > 0: " + capacity);
+        this.ring = new SearchHistoryEntry[capacity];
+    }
+
+    /**
+     * Thêm entry vào đầu. Trả về false nếu không có gì thay đổi (trùng hẳn entry mới nhất);
+     * cùng query + type nhưng khác kết quả thì entry mới nhất được thay.
+     */
+    public boolean add(SearchHistoryEntry entry) {
+        if (size > 0 && sameQuery(ring[head], entry)) {
+            if (ring[head].equals(entry)) return false;
+            ring[head] = entry;
+            return true;
+        }
+        head = (head + 1) % ring.length;
+        ring[head] = entry;
+        if (size < ring.length) size++;
+        return true;
+    }
+
+    private static boolean sameQuery(SearchHistoryEntry a, SearchHistoryEntry b) {
+        return a.getType().equals(b.getType()) && a.getQuery().trim().equals(b.getQuery().trim());
+    }
+
+    public SearchHistoryEntry get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        return ring[slot(index)];
+    }
+
+    // Xóa entry thứ index (0 = mới nhất); các entry cũ hơn dời lên một bậc, O(size)
+    public boolean remove(int index) {
+        if (index < 0 || index >= size) return false;
+        for (int i = index; i < size - 1; i++) ring[slot(i)] = ring[slot(i + 1)];
+        ring[slot(size - 1)] = null;
+        size--;
+        if (size == 0) head = -1;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(ring, null);
+        head = -1;
+        size = 0;
+    }
+
+    public int size() { return size; }
+
+    public int capacity() { return ring.length; }
+
+    // Các entry từ mới nhất tới cũ nhất
+    public List<SearchHistoryEntry> toList() {
+        List<SearchHistoryEntry> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) out.add(ring[slot(i)]);
+        return out;
+    }
+
+    // Vị trí trong ring của entry thứ index tính từ mới nhất
+    private int slot(int index) {
+        return Math.floorMod(head - index, ring.length);
+    }
+}
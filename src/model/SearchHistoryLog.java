@@ -0,0 +1,232 @@
+package src.model;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * SearchHistoryLog
+ * - Log append-only các thay đổi của SearchHistory (thêm / xóa một entry / xóa hết), để mỗi lần
+ *   tìm kiếm chỉ ghi nối một record nhỏ thay vì ghi lại cả danh sách.
+ * - open() replay log vào SearchHistory rồi mở để ghi tiếp; rewrite() thay log bằng đúng các entry
+ *   hiện có (compact) khi log đã dài hơn nhiều so với lịch sử.
+ * - Không fsync: mất vài lần tìm cuối khi mất điện là chấp nhận được với lịch sử.
+ *
+ * Format (big-endian), cùng kiểu record với SlangJournal:
+ * - header: magic "SLHL", version
+ * - mỗi record: độ dài payload (int), CRC32 của payload (int), payload
+ *   payload = op (byte) + tham số (chuỗi UTF-8 có tiền tố độ dài, hoặc int).
+ * Record ghi dở ở cuối file (crash) bị bỏ qua và cắt đi trước khi ghi tiếp.
+ */
+public final class SearchHistoryLog implements Closeable {
+
+    public static final String LOG_FILE = "data/history.log";
+
+    static final int MAGIC = 0x534C484C; // "SLHL"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+
+    private static final byte OP_ADD = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_CLEAR = 3;
+    private static final int MAX_RECORD = 16 << 20;
+
+    private final Path file;
+    private FileChannel channel;
+    private int recordCount;
+
+    private SearchHistoryLog(Path file, FileChannel channel, int recordCount) {
+        this.file = file;
+        this.channel = channel;
+        this.recordCount = recordCount;
+    }
+
+    /**
+     * Replay log (nếu có) vào history rồi mở để ghi tiếp. File không đúng format
+     * thì bắt đầu log rỗng.
+     */
+    public static SearchHistoryLog open(Path file, SearchHistory history) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            Scan scan = replay(ch, history);
+            if (scan == null) {
+                writeHeader(ch);
+                return new SearchHistoryLog(file, ch, 0);
+            }
+            if (scan.validEnd < ch.size()) ch.truncate(scan.validEnd);
+            ch.position(scan.validEnd);
+            return new SearchHistoryLog(file, ch, scan.records);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    public void appendAdd(SearchHistoryEntry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(OP_ADD);
+        writeEntry(out, entry);
+        append(bytes.toByteArray());
+    }
+
+    public void appendRemove(int index) throws IOException {
+        append(new byte[]{OP_REMOVE, (byte) (index >>> 24), (byte) (index >>> 16), (byte) (index >>> 8), (byte) index});
+    }
+
+    public void appendClear() throws IOException {
+        append(new byte[]{OP_CLEAR});
+    }
+
+    /**
+     * Thay cả log bằng các entry trong newestFirst (ghi atomic qua AtomicFile), rồi ghi tiếp sau đó.
+     */
+    public void rewrite(List<SearchHistoryEntry> newestFirst) throws IOException {
+        AtomicFile.write(file, os -> {
+            DataOutputStream out = new DataOutputStream(os);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (int i = newestFirst.size() - 1; i >= 0; i--) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+                DataOutputStream rec = new DataOutputStream(bytes);
+                rec.writeByte(OP_ADD);
+                writeEntry(rec, newestFirst.get(i));
+                byte[] payload = bytes.toByteArray();
+                out.writeInt(payload.length);
+                out.writeInt(crcOf(payload));
+                out.write(payload);
+            }
+            out.flush();
+        });
+        channel.close();
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        recordCount = newestFirst.size();
+    }
+
+    public int recordCount() { return recordCount; }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // ---------------- Encoding ----------------
+
+    private void append(byte[] payload) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.length);
+        record.putInt(payload.length).putInt(crcOf(payload)).put(payload).flip();
+        while (record.hasRemaining()) channel.write(record);
+        recordCount++;
+    }
+
+    private static int crcOf(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    private static void writeEntry(DataOutputStream out, SearchHistoryEntry entry) throws IOException {
+        writeString(out, entry.getType());
+        writeString(out, entry.getQuery());
+        out.writeInt(entry.getResultWords().size());
+        for (String w : entry.getResultWords()) writeString(out, w);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int len = in.getInt();
+        if (len < 0 || len > in.remaining()) throw new IllegalStateException("chuỗi hỏng trong history log");
+        String s = new String(in.array(), in.arrayOffset() + in.position(), len, StandardCharsets.UTF_8);
+        in.position(in.position() + len);
+        return s;
+    }
+
+    private static void writeHeader(FileChannel ch) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        ch.truncate(0);
+        while (header.hasRemaining()) ch.write(header, header.position());
+        ch.position(HEADER_SIZE);
+    }
+
+    private static final class Scan {
+        long validEnd;
+        int records;
+    }
+
+    // Áp các record hợp lệ lên history; null nếu header sai (không phải history log)
+    private static Scan replay(FileChannel ch, SearchHistory history) throws IOException {
+        long size = ch.size();
+        if (size < HEADER_SIZE) return null;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(ch, header, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) return null;
+
+        Scan scan = new Scan();
+        long pos = HEADER_SIZE;
+        ByteBuffer frame = ByteBuffer.allocate(8);
+        while (pos + 8 <= size) {
+            frame.clear();
+            readFully(ch, frame, pos);
+            int len = frame.getInt(0);
+            if (len <= 0 || len > MAX_RECORD || pos + 8 + len > size) break;
+            ByteBuffer payload = ByteBuffer.allocate(len);
+            readFully(ch, payload, pos + 8);
+            if (crcOf(payload.array()) != frame.getInt(4)) break;
+            try {
+                apply(payload, history);
+            } catch (RuntimeException e) {
+                break; // payload sai cấu trúc: coi như đuôi hỏng
+            }
+            pos += 8 + len;
+            scan.records++;
+        }
+        scan.validEnd = pos;
+        return scan;
+    }
+
+    private static void apply(ByteBuffer in, SearchHistory history) {
+        in.position(0);
+        byte op = in.get();
+        switch (op) {
+            case OP_ADD: {
+                String type = readString(in);
+                String query = readString(in);
+                int n = in.getInt();
+                if (n < 0 || n > in.remaining() / 4) throw new IllegalStateException("số kết quả hỏng");
+                List<String> results = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) results.add(readString(in));
+                history.add(new SearchHistoryEntry(query, type, results));
+                break;
+            }
+            case OP_REMOVE:
+                history.remove(in.getInt()); // index ngoài phạm vi (capacity nhỏ đi) thì bỏ qua
+                break;
+            case OP_CLEAR:
+                history.clear();
+                break;
+            default:
+                throw new IllegalStateException("op không hợp lệ: " + op);
+        }
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos + buf.position());
+            if (n < 0) throw new EOFException();
+        }
+    }
+}
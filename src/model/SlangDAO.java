@@ -1,32 +1,301 @@
 package src.model;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
 
+/**
+ * SlangDAO
+ * - Đọc/ghi data/slang.txt, mỗi dòng "word`def1|def2|...", luôn dùng UTF-8.
+ * - Load chia file thành các đoạn byte theo ranh giới dòng, parse song song, tự tìm dấu ` và |
+ *   (không regex), rồi nạp vào dictionary ở chế độ bulk nên index chỉ build một lần sau cùng.
+ * - Dòng lỗi (thiếu dấu `, key rỗng, byte UTF-8 hỏng) được báo kèm số dòng lên System.err.
+ * - Thay đổi sau snapshot nằm trong SlangJournal; load() replay journal, compact() ghi snapshot mới.
+ */
 public class SlangDAO {
-    private static final String FILE_PATH = "data/slang.txt";
-
-    public static void load(SlangDictionary dict) throws IOException {
-        try (BufferedReader br = new BufferedReader(new FileReader(FILE_PATH))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (!line.contains("`")) continue;
-                String[] parts = line.split("`", 2);
-                if (parts.length < 2) continue;
-                String word = parts[0].trim();
-                // Ensure mutable list
-                List<String> defs = new ArrayList<>(Arrays.asList(parts[1].split("\\|")));
-                dict.addSlang(new SlangWord(word, defs));
+    public static final String FILE_PATH = "data/slang.txt";
+
+    private static final int MAX_REPORTED_ERRORS = 20;
+    private static final char REPLACEMENT = '\uFFFD';
+    private static final long CHUNK_BYTES = 4L << 20; // mỗi đoạn parse song song ~4 MB
+
+    /**
+     * Khởi động: nạp snapshot data/slang.txt, load (hoặc build) index của snapshot,
+     * rồi replay journal để có lại các thay đổi sau snapshot. Trả về số dòng snapshot đã nạp.
+     */
+    public static int load(SlangDictionary dict) throws IOException {
+        int loaded = load(dict, Paths.get(FILE_PATH));
+        dict.loadOrBuildIndex();
+        SlangJournal.replay(Paths.get(SlangJournal.JOURNAL_FILE), checksum(), dict);
+        return loaded;
+    }
+
+    // Mở journal của snapshot hiện tại để ghi tiếp các thay đổi
+    public static SlangJournal openJournal() throws IOException {
+        return SlangJournal.open(Paths.get(SlangJournal.JOURNAL_FILE), checksum());
+    }
+
+    /**
+     * Compact: ghi snapshot mới từ danh sách từ (theo thứ tự ID, lấy từ
+     * SlangDictionary.getAllInOrder()), gắn journal rỗng với snapshot đó, rồi ghi index.
+     * Index được build lại từ chính danh sách này nên compact chạy được ở thread nền mà
+     * không đọc index đang bị sửa.
+     * - Rename snapshot là điểm commit; journal được reset ngay sau đó, trước việc ghi index.
+     *   Crash (hoặc lỗi) trước khi header mới bền thì journal cũ không khớp checksum snapshot
+     *   nên bị bỏ qua lúc load (snapshot đã chứa mọi thay đổi), còn journal trong bộ nhớ từ chối
+     *   ghi tiếp cho tới khi reset thành công (compact được thử lại).
+     * - Index ghi lỗi / ghi dở chỉ thiếu file của generation mới và được build lại lúc load.
+     */
+    public static void compact(List<SlangWord> words, SlangJournal journal) throws IOException {
+        compact(words, journal, Paths.get(FILE_PATH).getParent());
+    }
+
+    // Như compact(words, journal) nhưng ghi các file vào dataDir thay vì data/ (benchmark, thư mục tạm)
+    public static void compact(List<SlangWord> words, SlangJournal journal, Path dataDir) throws IOException {
+        long generation = save(words, dataDir.resolve(Paths.get(FILE_PATH).getFileName()));
+        if (journal != null) journal.reset(generation);
+        int[] identity = new int[words.size()];
+        for (int i = 0; i < identity.length; i++) identity[i] = i;
+        // file mới theo generation: không ghi đè index cũ có thể đang được map
+        String indexFile = dataDir.resolve(Paths.get(DefinitionIndex.INDEX_FILE).getFileName()).toString();
+        String gramFile = dataDir.resolve(Paths.get(DefinitionIndex.GRAM_INDEX_FILE).getFileName()).toString();
+        DefinitionIndex.save(DefinitionIndex.fileFor(indexFile, generation), DefinitionIndex.buildSnapshot(words),
+                identity, generation);
+        DefinitionIndex.save(DefinitionIndex.fileFor(gramFile, generation), DefinitionIndex.buildGramsSnapshot(words),
+                identity, generation);
+        DefinitionIndex.deleteOtherGenerations(indexFile, generation);
+        DefinitionIndex.deleteOtherGenerations(gramFile, generation);
+    }
+
+    /**
+     * Nạp file vào dictionary, trả về số dòng đã nạp.
+     * File được chia thành các đoạn byte (cắt đúng ranh giới dòng), mỗi đoạn được decode,
+     * parse và normalize song song trên ForkJoinPool chung; sau đó các từ được thêm vào
+     * dictionary tuần tự theo đúng thứ tự trong file (ID và key trùng giống nạp tuần tự).
+     */
+    public static int load(SlangDictionary dict, Path file) throws IOException {
+        List<ParsedChunk> chunks;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(ch);
+            List<Callable<ParsedChunk>> tasks = new ArrayList<>(bounds.length - 1);
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long from = bounds[i], to = bounds[i + 1];
+                tasks.add(() -> parseChunk(ch, from, to));
             }
+            chunks = tasks.size() == 1
+                    ? Collections.singletonList(parseChunk(ch, bounds[0], bounds[1]))
+                    : invokeAll(tasks);
+        }
+
+        int loaded = 0;
+        int errors = 0;
+        int lineBase = 0;
+        dict.beginBulkLoad();
+        try {
+            for (ParsedChunk chunk : chunks) {
+                for (SlangWord sw : chunk.words) dict.addSlang(sw);
+                loaded += chunk.words.size();
+                for (int i = 0; i < chunk.errorLines.size(); i++) {
+                    report(file, lineBase + chunk.errorLines.get(i), chunk.errorMessages.get(i), errors++);
+                }
+                lineBase += chunk.lines;
+            }
+        } finally {
+            dict.endBulkLoad();
+        }
+        if (errors > MAX_REPORTED_ERRORS) {
+            System.err.println(file + ": tổng cộng " + errors + " dòng lỗi");
         }
+        return loaded;
     }
 
-    public static void save(SlangDictionary dict) throws IOException {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(FILE_PATH))) {
-            for (SlangWord sw : dict.getAll().values()) {
-                bw.write(sw.getWord() + "`" + String.join("|", sw.getDefinitions()));
+    // Kết quả parse một đoạn file; số dòng lỗi tính từ đầu đoạn (1-based)
+    private static final class ParsedChunk {
+        final List<SlangWord> words = new ArrayList<>();
+        final List<Integer> errorLines = new ArrayList<>();
+        final List<String> errorMessages = new ArrayList<>();
+        int lines;
+
+        void error(int lineNo, String message) {
+            errorLines.add(lineNo);
+            errorMessages.add(message);
+        }
+    }
+
+    // Ranh giới các đoạn: mỗi ranh giới (trừ hai đầu) nằm ngay sau một '\n'
+    private static long[] chunkBounds(FileChannel ch) throws IOException {
+        long size = ch.size();
+        long wanted = Math.min(ForkJoinPool.getCommonPoolParallelism() * 4L, size / CHUNK_BYTES);
+        int n = (int) Math.max(Math.max(1, wanted), size / Integer.MAX_VALUE + 1); // mỗi đoạn phải vừa một byte[]
+        long[] bounds = new long[n + 1];
+        int count = 1;
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        for (int i = 1; i < n; i++) {
+            long pos = Math.max(size * i / n, bounds[count - 1]);
+            long cut = -1;
+            while (cut < 0 && pos < size) {
+                probe.clear();
+                int read = ch.read(probe, pos);
+                if (read <= 0) break;
+                for (int j = 0; j < read; j++) {
+                    if (probe.get(j) == '\n') {
+                        cut = pos + j + 1;
+                        break;
+                    }
+                }
+                pos += read;
+            }
+            if (cut < 0 || cut >= size) break;
+            if (cut > bounds[count - 1]) bounds[count++] = cut;
+        }
+        bounds[count++] = size;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    private static ParsedChunk parseChunk(FileChannel ch, long from, long to) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int) (to - from));
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, from + buf.position()) < 0) break;
+        }
+        // new String thay byte UTF-8 hỏng bằng U+FFFD; ranh giới đoạn luôn sau '\n' nên không cắt giữa ký tự
+        String text = new String(buf.array(), 0, buf.position(), StandardCharsets.UTF_8);
+        ParsedChunk out = new ParsedChunk();
+        int start = from == 0 && text.startsWith("\uFEFF") ? 1 : 0; // BOM
+        while (start < text.length()) {
+            int nl = text.indexOf('\n', start);
+            int end = nl < 0 ? text.length() : nl;
+            int lineEnd = end > start && text.charAt(end - 1) == '\r' ? end - 1 : end;
+            out.lines++;
+            parseLine(text.substring(start, lineEnd), out.lines, out);
+            start = end + 1;
+        }
+        return out;
+    }
+
+    private static void parseLine(String line, int lineNo, ParsedChunk out) {
+        if (line.isEmpty()) return;
+        int tick = line.indexOf('`');
+        if (tick < 0) {
+            out.error(lineNo, "bỏ qua dòng lỗi (thiếu dấu `)");
+            return;
+        }
+        if (isBlank(line, 0, tick)) {
+            out.error(lineNo, "bỏ qua dòng lỗi (key rỗng)");
+            return;
+        }
+        if (line.indexOf(REPLACEMENT) >= 0) {
+            out.error(lineNo, "byte UTF-8 không hợp lệ, đã thay bằng U+FFFD");
+        }
+        String word = line.substring(0, tick).trim();
+        out.words.add(new SlangWord(word, splitDefinitions(line, tick + 1)));
+    }
+
+    private static List<ParsedChunk> invokeAll(List<Callable<ParsedChunk>> tasks) throws IOException {
+        List<ParsedChunk> out = new ArrayList<>(tasks.size());
+        for (Future<ParsedChunk> f : ForkJoinPool.commonPool().invokeAll(tasks)) {
+            try {
+                out.add(f.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("load bị ngắt");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) throw (IOException) cause;
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                throw new IOException(cause);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Tách phần definition theo '|', giữ nguyên khoảng trắng như dữ liệu gốc.
+     * Giống String.split("\\|"): bỏ các phần rỗng ở cuối, chuỗi không có '|' giữ nguyên.
+     */
+    static List<String> splitDefinitions(String line, int from) {
+        int parts = 1;
+        for (int i = from; i < line.length(); i++) {
+            if (line.charAt(i) == '|') parts++;
+        }
+        List<String> defs = new ArrayList<>(parts);
+        if (parts == 1) {
+            defs.add(line.substring(from));
+            return defs;
+        }
+        int start = from;
+        for (int i = from; i <= line.length(); i++) {
+            if (i == line.length() || line.charAt(i) == '|') {
+                defs.add(line.substring(start, i));
+                start = i + 1;
+            }
+        }
+        int n = defs.size();
+        while (n > 0 && defs.get(n - 1).isEmpty()) defs.remove(--n);
+        return defs;
+    }
+
+    private static boolean isBlank(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(s.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static void report(Path file, int lineNo, String problem, int reportedSoFar) {
+        if (reportedSoFar < MAX_REPORTED_ERRORS) {
+            System.err.println(file + ":" + lineNo + ": " + problem);
+        }
+    }
+
+    /**
+     * Ghi snapshot dictionary (UTF-8) kiểu crash-safe: file tạm + fsync + rename atomic.
+     * Trả về generation của snapshot = CRC32 nội dung vừa ghi (giống checksum()),
+     * dùng để gắn index với đúng bản data file nó được build từ.
+     */
+    public static long save(SlangDictionary dict) throws IOException {
+        return save(dict.getAllInOrder());
+    }
+
+    public static long save(List<SlangWord> words) throws IOException {
+        return save(words, Paths.get(FILE_PATH));
+    }
+
+    public static long save(List<SlangWord> words, Path file) throws IOException {
+        return AtomicFile.write(file, out -> {
+            BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            for (SlangWord sw : words) {
+                bw.write(sw.getWord());
+                bw.write('`');
+                List<String> defs = sw.getDefinitions();
+                for (int i = 0; i < defs.size(); i++) {
+                    if (i > 0) bw.write('|');
+                    bw.write(defs.get(i));
+                }
                 bw.newLine();
             }
+            bw.flush(); // không close: AtomicFile còn fsync trước khi đóng
+        });
+    }
+
+    // CRC32 của data file, dùng để kiểm tra index trên đĩa có còn khớp không
+    public static long checksum() throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(FILE_PATH))) {
+            byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buf)) > 0) crc.update(buf, 0, n);
         }
+        return crc.getValue();
     }
-}
\ No newline at end of file
+}
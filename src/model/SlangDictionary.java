@@ -2,30 +2,118 @@ package src.model;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * SlangDictionary with deep-copy backup and restore + Definition inverted index.
+ * SlangDictionary with versioned snapshots + Definition inverted index.
+ * Mỗi SlangWord được gán một ID dày (theo thứ tự thêm vào); index lưu bitmap các ID.
+ *
+ * Phiên bản: toàn bộ trạng thái (dictionary, bảng ID, index, key index, trie) nằm trong một
+ * Version bất biến dựng từ các cấu trúc persistent (PersistentMap, PersistentVector, WordTrie).
+ * Mỗi lần sửa tạo Version mới dùng chung gần hết cấu trúc với bản cũ, nên:
+ * - bản gốc (backupOriginal) và các checkpoint đặt tên chỉ là tham chiếu tới một Version,
+ *   reset / restore là đổi con trỏ, O(1), không deep-copy hay build lại index;
+ * - SlangWord bất biến (gán ID là tạo bản sao) nên dùng chung giữa các phiên bản an toàn.
+ *
+ * Thread-safety: các hàm tra cứu đọc Version hiện tại qua một field volatile, không lấy lock
+ * và không bị chặn bởi writer; các hàm sửa được tuần tự hóa bằng writeLock. Kết quả trả ra
+ * là dữ liệu bất biến hoặc list mới, không phải view lên cấu trúc đang bị sửa.
+ *
+ * Metrics (lock-free, luôn bật): số lần findByWord phải tra folded key, số lần tìm definition
+ * phải duyệt toàn bộ, và phân bố kích thước tập ứng viên lấy từ n-gram index.
+ *
+ * Tập slang khớp một query definition được giữ trong QueryCache (LRU, giới hạn qua
+ * -Dslang.cache.entries / -Dslang.cache.bytes hoặc setQueryCacheLimits); add/edit/delete
+ * chỉ bỏ các query mà slang bị sửa có chứa.
  */
 public class SlangDictionary {
-    private static SlangDictionary instance;
+    public static final String MMAP_PROPERTY = "slang.index.mmap";
+    public static final String CACHE_ENTRIES_PROPERTY = "slang.cache.entries";
+    public static final String CACHE_BYTES_PROPERTY = "slang.cache.bytes";
 
-    // wordKey -> SlangWord
-    private Map<String, SlangWord> dictionary;
+    // Holder idiom: khởi tạo lazy, thread-safe nhờ class init của JVM
+    private static final class Holder {
+        static final SlangDictionary INSTANCE = new SlangDictionary();
+    }
+
+    /**
+     * Một phiên bản của dictionary. Mọi field đều bất biến; index có thể là
+     * MappedDefinitionIndex (read-only, vừa load) cho tới lần sửa đầu tiên.
+     */
+    private static final class Version {
+        static final Version EMPTY = new Version(PersistentMap.empty(), PersistentVector.empty(),
+                PersistentVector.empty(), PersistentVector.empty(), PersistentMap.empty(), PersistentMap.empty(),
+                PersistentMap.empty(), WordTrie.empty(), 0, false);
+
+        // wordKey -> SlangWord
+        final PersistentMap<String, SlangWord> words;
+        // id -> SlangWord (null nếu đã xóa); ID không tái sử dụng trong một phiên bản
+        final PersistentVector<SlangWord> byId;
+        // Các slang còn sống xếp liền nhau (không có lỗ) để chọn ngẫu nhiên O(1); xóa = swap-remove
+        final PersistentVector<SlangWord> live;
+        // id -> vị trí trong live (null nếu đã xóa)
+        final PersistentVector<Integer> slotById;
+        // Inverted index for definitions: token -> bitmap of word IDs
+        final Map<String, IdBitmap> defIndex;
+        // N-gram index (bigram + trigram của definition đã normalize) -> bitmap of word IDs
+        final Map<String, IdBitmap> gramIndex;
+        // Secondary key index: folded key (lowercase, bỏ dấu) -> các key gốc, theo thứ tự thêm vào
+        final PersistentMap<String, List<String>> foldedKeys;
+        // Prefix trie trên folded key cho autocomplete
+        final WordTrie trie;
+        // Tổng số token definition của mọi slang (độ dài trung bình cho BM25)
+        final long totalDefLength;
+        // index chưa phản ánh dictionary (sau bulk load), build lại trước khi dùng
+        final boolean indexStale;
 
-    // Inverted index for definitions: token -> set of word (slang)
-    private Map<String, Set<String>> defIndex;
+        Version(PersistentMap<String, SlangWord> words, PersistentVector<SlangWord> byId,
+                PersistentVector<SlangWord> live, PersistentVector<Integer> slotById,
+                Map<String, IdBitmap> defIndex, Map<String, IdBitmap> gramIndex,
+                PersistentMap<String, List<String>> foldedKeys, WordTrie trie,
+                long totalDefLength, boolean indexStale) {
+            this.words = words;
+            this.byId = byId;
+            this.live = live;
+            this.slotById = slotById;
+            this.defIndex = defIndex;
+            this.gramIndex = gramIndex;
+            this.foldedKeys = foldedKeys;
+            this.trie = trie;
+            this.totalDefLength = totalDefLength;
+            this.indexStale = indexStale;
+        }
 
-    private Map<String, SlangWord> originalSnapshot; // deep-copy snapshot
-    private final Random random = new Random();
+        Version withIndex(Map<String, IdBitmap> def, Map<String, IdBitmap> grams) {
+            long length = 0;
+            for (SlangWord sw : words.values()) length += sw.getDefinitionLength();
+            return new Version(words, byId, live, slotById, def, grams, foldedKeys, trie, length, false);
+        }
 
-    private SlangDictionary() {
-        dictionary = new HashMap<>();
-        defIndex = new HashMap<>();
+        Version withBuiltIndex() {
+            return withIndex(PersistentMap.of(DefinitionIndex.build(words)),
+                    PersistentMap.of(DefinitionIndex.buildGrams(words)));
+        }
     }
 
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Version current = Version.EMPTY;
+
+    private Staging staging;                 // khác null khi đang nạp hàng loạt
+    private Version original;                // bản gốc sau khi load (backupOriginal)
+    private final Map<String, Version> checkpoints = new LinkedHashMap<>(); // giữ dưới writeLock
+
+    private final LongAdder wordFallbacks = new LongAdder();   // findByWord không khớp đúng key
+    private final LongAdder fullScans = new LongAdder();       // findByDefinition không dùng được index
+    private final Histogram candidateSizes = new Histogram();  // số ứng viên từ n-gram index mỗi lần tra (cache miss)
+    private final QueryCache queryCache = new QueryCache(
+            Integer.getInteger(CACHE_ENTRIES_PROPERTY, 1024), Long.getLong(CACHE_BYTES_PROPERTY, 32L << 20));
+
+    private SlangDictionary() {}
+
     public static SlangDictionary getInstance() {
-        if (instance == null) instance = new SlangDictionary();
-        return instance;
+        return Holder.INSTANCE;
     }
 
     // ---------------- Basic operations ----------------
@@ -33,144 +121,673 @@ public class SlangDictionary {
     // Put slang; if existed, update index by removing old then adding new
     public void addSlang(SlangWord slang) {
         if (slang == null || slang.getWord() == null) return;
-        String key = slang.getWord();
-        SlangWord old = dictionary.get(key);
-        if (old != null) {
-            DefinitionIndex.removeFromIndex(defIndex, old);
+        writeLock.lock();
+        try {
+            if (staging != null) {
+                staging.put(slang);
+                return;
+            }
+            Version v = ready();
+            Edit edit = new Edit(v);
+            edit.put(slang);
+            current = edit.commit();
+            queryCache.invalidate(v.words.get(slang.getWord()), current.words.get(slang.getWord()));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Bắt đầu nạp hàng loạt: addSlang chỉ ghi vào bảng tạm (HashMap/ArrayList),
+     * endBulkLoad dựng Version một lượt; definition index được build sau đó một lần
+     * (hoặc load từ file). Trong lúc nạp, reader vẫn thấy phiên bản trước.
+     */
+    public void beginBulkLoad() {
+        writeLock.lock();
+        try {
+            if (staging == null) staging = new Staging(current);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Kết thúc nạp hàng loạt; index được build lại lần đầu cần dùng nếu loadOrBuildIndex chưa nạp
+    public void endBulkLoad() {
+        writeLock.lock();
+        try {
+            if (staging == null) return;
+            current = staging.toVersion();
+            staging = null;
+            queryCache.clear();
+        } finally {
+            writeLock.unlock();
         }
-        dictionary.put(key, slang);
-        DefinitionIndex.addToIndex(defIndex, slang);
     }
 
     public SlangWord findByWord(String word) {
         if (word == null) return null;
         String key = word.trim();
-        // key được giữ nguyên (case-sensitive) theo dữ liệu file,
-        // nếu muốn case-insensitive, có thể chuẩn hóa key ngay khi load vào.
-        SlangWord direct = dictionary.get(key);
+        Version v = current;
+        // key được giữ nguyên (case-sensitive) theo dữ liệu file
+        SlangWord direct = v.words.get(key);
         if (direct != null) return direct;
-        // fallback: tìm ignore-case
-        for (Map.Entry<String, SlangWord> e : dictionary.entrySet()) {
-            if (e.getKey().equalsIgnoreCase(key)) return e.getValue();
-        }
-        return null;
+        // fallback: tra secondary index (ignore-case + bỏ dấu), vẫn O(1)
+        wordFallbacks.increment();
+        List<String> keys = v.foldedKeys.get(foldKey(key));
+        if (keys == null || keys.isEmpty()) return null;
+        return v.words.get(keys.get(0));
     }
 
     public List<SlangWord> findByDefinition(String keyword) {
-        List<SlangWord> result = new ArrayList<>();
-        if (keyword == null || keyword.trim().isEmpty()) return result;
+        if (keyword == null || keyword.trim().isEmpty()) return new ArrayList<>();
+        return new ArrayList<>(Arrays.asList(matches(DefinitionIndex.normalize(keyword).trim())));
+    }
+
+    /**
+     * Mọi slang có definition chứa query đã normalize, theo thứ tự ID; lấy từ QueryCache nếu có.
+     * Mảng trả về có thể nằm trong cache: không được sửa.
+     */
+    private SlangWord[] matches(String lowered) {
+        SlangWord[] cached = queryCache.get(lowered);
+        if (cached != null) return cached;
 
-        String lowered = DefinitionIndex.removeDiacritics(keyword).toLowerCase(Locale.ROOT).trim();
+        long gen = queryCache.generation(); // đọc trước Version: put() bỏ qua nếu có sửa đổi xen giữa
+        SlangWord[] found = scan(ready(), lowered);
+        queryCache.put(lowered, found, gen);
+        return found;
+    }
 
-        // 1) Lấy tokens từ keyword -> ứng viên nhanh từ index
-        List<String> tokens = DefinitionIndex.tokenize(keyword);
-        Set<String> candidates;
-        if (tokens.isEmpty()) {
-            // Nếu không có token hợp lệ (vd keyword quá ngắn), fallback: duyệt nhanh nhưng vẫn có thể chậm
-            candidates = dictionary.keySet();
+    // Tính tập khớp trên phiên bản v: giao posting n-gram rồi lọc substring
+    private SlangWord[] scan(Version v, String lowered) {
+        List<SlangWord> result = new ArrayList<>();
+        // 1) Lấy ứng viên từ n-gram index: mọi definition chứa keyword đều chứa các n-gram của nó
+        IdBitmap candidates = DefinitionIndex.candidateBySubstring(v.gramIndex, lowered);
+        if (candidates == null) {
+            // keyword chỉ 1 ký tự: không đủ để dùng index, duyệt toàn bộ
+            fullScans.increment();
+            for (int id = 0; id < v.byId.size(); id++) {
+                SlangWord sw = v.byId.get(id);
+                if (sw != null && DefinitionIndex.containsSubstring(sw, lowered)) result.add(sw);
+            }
         } else {
-            candidates = DefinitionIndex.candidateByTokens(defIndex, tokens);
-            // Nếu không có ứng viên nào, trả rỗng luôn
-            if (candidates.isEmpty()) return result;
+            // 2) Lọc cuối bằng substring để đảm bảo đúng yêu cầu đề
+            candidateSizes.record(candidates.cardinality());
+            candidates.forEach(id -> {
+                SlangWord sw = v.byId.get(id);
+                if (DefinitionIndex.containsSubstring(sw, lowered)) {
+                    result.add(sw);
+                }
+            });
         }
+        return result.toArray(new SlangWord[0]);
+    }
 
-        // 2) Lọc cuối bằng substring để đảm bảo đúng yêu cầu đề
-        for (String w : candidates) {
-            SlangWord sw = dictionary.get(w);
-            if (DefinitionIndex.containsSubstring(sw, lowered)) {
-                result.add(sw);
-            }
+    /**
+     * Tìm theo definition có xếp hạng BM25, chỉ trả về k kết quả tốt nhất (tốt nhất trước).
+     * Tập khớp lấy từ QueryCache (cùng entry với findByDefinition(keyword)), trượt cache thì
+     * tính trên phiên bản hiện tại rồi lưu lại; sau đó chỉ còn chấm điểm trong tập khớp, ứng viên
+     * không thể lọt top-k bị bỏ trước khi tính điểm. Thống kê BM25 lấy từ cùng phiên bản đó.
+     */
+    public List<SlangWord> findByDefinition(String keyword, int k) {
+        if (k <= 0 || keyword == null || keyword.trim().isEmpty()) return new ArrayList<>();
+
+        String lowered = DefinitionIndex.normalize(keyword).trim();
+        long gen = queryCache.generation(); // đọc trước cache và Version
+        SlangWord[] found = queryCache.get(lowered);
+        Version v = ready();
+        if (found == null || queryCache.generation() != gen) {
+            // trượt cache, hoặc có sửa đổi xen giữa nên tập khớp có thể không ứng với v
+            found = scan(v, lowered);
+            queryCache.put(lowered, found, gen);
+        }
+        Bm25Ranker ranker = new Bm25Ranker(lowered, v.defIndex, v.words.size(), v.totalDefLength, k);
+        for (SlangWord sw : found) ranker.offerMatch(sw);
+        return ranker.results();
+    }
+
+    /**
+     * Các slang có definition chung token với sw (không gồm chính key của sw), tối đa limit.
+     * Token hiếm (df nhỏ trong token index) được xét trước vì gần nghĩa hơn; token chỉ sw có
+     * thì bỏ qua. Dùng để chọn đáp án nhiễu cho quiz.
+     */
+    public List<SlangWord> findRelated(SlangWord sw, int limit) {
+        if (sw == null || limit <= 0) return new ArrayList<>();
+        Version v = ready();
+        Set<String> tokens = new HashSet<>();
+        for (String norm : sw.getNormalizedDefinitions()) tokens.addAll(DefinitionIndex.tokenizeNormalized(norm));
+        List<IdBitmap> postings = new ArrayList<>(tokens.size());
+        for (String tok : tokens) {
+            IdBitmap b = v.defIndex.get(tok);
+            if (b != null && b.cardinality() > 1) postings.add(b);
         }
-        return result;
+        postings.sort(Comparator.comparingInt(IdBitmap::cardinality));
+
+        Set<SlangWord> out = new LinkedHashSet<>();
+        for (IdBitmap b : postings) {
+            // dừng ngay khi đủ limit, không duyệt nốt posting list
+            boolean more = b.forEachWhile(id -> {
+                SlangWord other = v.byId.get(id);
+                if (other != null && !other.getWord().equals(sw.getWord())) out.add(other);
+                return out.size() < limit;
+            });
+            if (!more) break;
+        }
+        return new ArrayList<>(out);
+    }
+
+    // Gợi ý các slang bắt đầu bằng prefix (ignore-case + bỏ dấu)
+    public List<String> completions(String prefix, int limit) {
+        if (prefix == null) return Collections.emptyList();
+        return current.trie.completions(foldKey(prefix.trim()), limit);
+    }
+
+    /**
+     * Tìm các slang có key gần giống `word` (ignore-case + bỏ dấu), cách tối đa maxEdits
+     * phép sửa Levenshtein, gần nhất trước. Trả về key gốc, tối đa `limit` kết quả.
+     */
+    public List<String> findSimilar(String word, int maxEdits, int limit) {
+        if (word == null || word.trim().isEmpty()) return Collections.emptyList();
+        return current.trie.similar(foldKey(word.trim()), maxEdits, limit);
+    }
+
+    public void clear() {
+        writeLock.lock();
+        try {
+            current = Version.EMPTY;
+            if (staging != null) staging = new Staging(Version.EMPTY);
+            queryCache.clear();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Dictionary của phiên bản hiện tại (key -> SlangWord); map bất biến, không cần chép
+    public Map<String, SlangWord> getAll() {
+        return current.words;
+    }
+
+    public int size() {
+        return current.words.size();
     }
 
-    public void clear() { dictionary.clear(); defIndex.clear(); }
+    // Các slang còn sống theo thứ tự ID (thứ tự ghi ra data file)
+    public List<SlangWord> getAllInOrder() {
+        return liveWordsInOrder(current);
+    }
+
+    // Index của phiên bản hiện tại (bất biến, an toàn khi dictionary tiếp tục bị sửa)
+    public Map<String, IdBitmap> getDefIndex() {
+        return ready().defIndex;
+    }
 
-    public Map<String, SlangWord> getAll() { return dictionary; }
+    public void setDefIndex(Map<String, IdBitmap> idx) {
+        writeLock.lock();
+        try {
+            Version v = ready();
+            current = v.withIndex(idx == null ? PersistentMap.empty() : idx, v.gramIndex);
+            queryCache.clear();
+        } finally {
+            writeLock.unlock();
+        }
+    }
 
-    public Map<String, Set<String>> getDefIndex() { return defIndex; }
+    public Map<String, IdBitmap> getGramIndex() {
+        return ready().gramIndex;
+    }
 
-    public void setDefIndex(Map<String, Set<String>> idx) {
-        this.defIndex = (idx == null) ? new HashMap<>() : idx;
+    public void setGramIndex(Map<String, IdBitmap> idx) {
+        writeLock.lock();
+        try {
+            Version v = ready();
+            current = v.withIndex(v.defIndex, idx == null ? PersistentMap.empty() : idx);
+            queryCache.clear();
+        } finally {
+            writeLock.unlock();
+        }
     }
 
-    // ---------------- Backup / reset ----------------
+    // ---------------- Backup / reset / checkpoints ----------------
 
     /**
-     * Create a deep-copy snapshot of current dictionary.
+     * Giữ phiên bản hiện tại làm bản gốc. Chỉ là một tham chiếu: các phiên bản sau
+     * dùng chung cấu trúc với nó, nên không tốn thêm bộ nhớ cho phần chưa bị sửa.
      */
     public void backupOriginal() {
-        originalSnapshot = new HashMap<>();
-        for (Map.Entry<String, SlangWord> e : dictionary.entrySet()) {
-            SlangWord copy = deepCopySlang(e.getValue());
-            originalSnapshot.put(copy.getWord(), copy);
+        writeLock.lock();
+        try {
+            original = current;
+        } finally {
+            writeLock.unlock();
         }
     }
 
     /**
-     * Restore dictionary from the snapshot (if present) and rebuild index.
+     * Quay về bản gốc (nếu có): đổi con trỏ phiên bản, index của bản gốc dùng lại nguyên vẹn.
      */
     public void resetToOriginal() {
-        if (originalSnapshot == null) return;
-        dictionary.clear();
-        for (Map.Entry<String, SlangWord> e : originalSnapshot.entrySet()) {
-            SlangWord copy = deepCopySlang(e.getValue());
-            dictionary.put(copy.getWord(), copy);
+        writeLock.lock();
+        try {
+            if (original != null) {
+                current = original;
+                queryCache.clear();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Lưu phiên bản hiện tại dưới tên `name` (ghi đè checkpoint cùng tên)
+    public void checkpoint(String name) {
+        if (name == null) return;
+        writeLock.lock();
+        try {
+            checkpoints.put(name, current);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Quay về checkpoint `name`; false nếu không có
+    public boolean restoreCheckpoint(String name) {
+        writeLock.lock();
+        try {
+            Version v = checkpoints.get(name);
+            if (v == null) return false;
+            current = v;
+            queryCache.clear();
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean removeCheckpoint(String name) {
+        writeLock.lock();
+        try {
+            return checkpoints.remove(name) != null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Tên các checkpoint theo thứ tự tạo
+    public List<String> getCheckpointNames() {
+        writeLock.lock();
+        try {
+            return new ArrayList<>(checkpoints.keySet());
+        } finally {
+            writeLock.unlock();
         }
-        // rebuild index from snapshot
-        defIndex = DefinitionIndex.build(dictionary);
     }
 
     // Edit: remove old key and insert newSlang under its own word (handles rename)
     public boolean editSlang(String oldWord, SlangWord newSlang) {
         if (oldWord == null || newSlang == null) return false;
-        if (!dictionary.containsKey(oldWord)) return false;
-        SlangWord old = dictionary.get(oldWord);
-        dictionary.remove(oldWord);
-        DefinitionIndex.removeFromIndex(defIndex, old);
-
-        dictionary.put(newSlang.getWord(), newSlang);
-        DefinitionIndex.addToIndex(defIndex, newSlang);
-        return true;
+        writeLock.lock();
+        try {
+            if (!current.words.containsKey(oldWord)) return false;
+            Version v = ready();
+            Edit edit = new Edit(v);
+            edit.rename(oldWord, newSlang);
+            current = edit.commit();
+            // slang cũ, slang bị đè ở key mới (nếu có) và slang sau khi sửa
+            queryCache.invalidate(v.words.get(oldWord), v.words.get(newSlang.getWord()),
+                    current.words.get(newSlang.getWord()));
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     public boolean deleteSlang(String word) {
         if (word == null) return false;
-        SlangWord removed = dictionary.remove(word);
-        if (removed != null) {
-            DefinitionIndex.removeFromIndex(defIndex, removed);
+        writeLock.lock();
+        try {
+            if (!current.words.containsKey(word)) return false;
+            Version v = ready();
+            Edit edit = new Edit(v);
+            edit.delete(word);
+            current = edit.commit();
+            queryCache.invalidate(v.words.get(word));
             return true;
+        } finally {
+            writeLock.unlock();
         }
-        return false;
     }
 
+    // Một slang ngẫu nhiên, O(1) và không cấp phát (chọn một vị trí trong mảng dày live)
     public SlangWord getRandomSlang() {
-        if (dictionary.isEmpty()) return null;
-        List<String> keys = new ArrayList<>(dictionary.keySet());
-        return dictionary.get(keys.get(random.nextInt(keys.size())));
+        Version v = current;
+        int n = v.live.size();
+        return n == 0 ? null : v.live.get(ThreadLocalRandom.current().nextInt(n));
     }
 
-    // Helper to deep-copy a SlangWord.
-    private SlangWord deepCopySlang(SlangWord original) {
-        if (original == null) return null;
-        List<String> defs = original.getDefinitions();
-        List<String> defsCopy = (defs == null) ? new ArrayList<>() : new ArrayList<>(defs);
-        return new SlangWord(original.getWord(), defsCopy);
+    /**
+     * k slang khác nhau chọn ngẫu nhiên đều (ít hơn nếu dictionary có ít hơn k từ), thứ tự ngẫu nhiên.
+     * Thuật toán Floyd: O(k), không chép hay xáo trộn cả dictionary.
+     */
+    public List<SlangWord> getRandomSlangs(int k) {
+        Version v = current;
+        int n = v.live.size();
+        k = Math.max(0, Math.min(k, n));
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        Set<Integer> chosen = new HashSet<>(k * 2);
+        List<SlangWord> out = new ArrayList<>(k);
+        for (int j = n - k; j < n; j++) {
+            int t = rnd.nextInt(j + 1);
+            int pick = chosen.add(t) ? t : j; // t đã được chọn thì lấy j (chắc chắn chưa chọn)
+            if (pick == j) chosen.add(j);
+            out.add(v.live.get(pick));
+        }
+        Collections.shuffle(out, rnd);
+        return out;
+    }
+
+    // ---------------- Editing a version ----------------
+
+    // Chuẩn hóa key cho lookup không phân biệt hoa thường / dấu
+    private static String foldKey(String word) {
+        return DefinitionIndex.normalize(word);
+    }
+
+    /**
+     * Dựng phiên bản mới từ một phiên bản (có index sẵn sàng): các field giữ gốc của
+     * từng cấu trúc persistent, mỗi thao tác thay gốc bằng bản đã sửa, commit() gói lại.
+     */
+    private static final class Edit {
+        PersistentMap<String, SlangWord> words;
+        PersistentVector<SlangWord> byId;
+        PersistentVector<SlangWord> live;
+        PersistentVector<Integer> slotById;
+        PersistentMap<String, IdBitmap> defIndex;
+        PersistentMap<String, IdBitmap> gramIndex;
+        PersistentMap<String, List<String>> foldedKeys;
+        WordTrie trie;
+        long totalDefLength;
+
+        Edit(Version v) {
+            words = v.words;
+            byId = v.byId;
+            live = v.live;
+            slotById = v.slotById;
+            defIndex = writable(v.defIndex);
+            gramIndex = writable(v.gramIndex);
+            foldedKeys = v.foldedKeys;
+            trie = v.trie;
+            totalDefLength = v.totalDefLength;
+        }
+
+        // Index mapped từ file là read-only: chép sang PersistentMap trước lần sửa đầu tiên
+        private static PersistentMap<String, IdBitmap> writable(Map<String, IdBitmap> index) {
+            return PersistentMap.of(index instanceof MappedDefinitionIndex ? DefinitionIndex.copyOf(index) : index);
+        }
+
+        void put(SlangWord slang) {
+            String key = slang.getWord();
+            SlangWord old = words.get(key);
+            if (old != null) {
+                unindexDefinitions(old);
+                slang = slang.withId(old.getId()); // giữ ID cũ cho key này
+                live = live.with(slotById.get(old.getId()), slang);
+            } else {
+                indexKey(key);
+                slang = slang.withId(byId.size());
+                live = live.plus(slang);
+                slotById = slotById.plus(live.size() - 1);
+            }
+            words = words.plus(key, slang);
+            byId = byId.with(slang.getId(), slang);
+            indexDefinitions(slang);
+        }
+
+        void rename(String oldWord, SlangWord newSlang) {
+            SlangWord old = words.get(oldWord);
+            words = words.minus(oldWord);
+            unindexKey(oldWord);
+            unindexDefinitions(old);
+
+            SlangWord replaced = words.get(newSlang.getWord());
+            if (replaced != null) {
+                unindexDefinitions(replaced);
+                byId = byId.with(replaced.getId(), null);
+                removeLive(replaced.getId());
+            } else {
+                indexKey(newSlang.getWord());
+            }
+            newSlang = newSlang.withId(old.getId()); // bản sửa giữ ID của bản cũ
+            words = words.plus(newSlang.getWord(), newSlang);
+            byId = byId.with(newSlang.getId(), newSlang);
+            live = live.with(slotById.get(newSlang.getId()), newSlang);
+            indexDefinitions(newSlang);
+        }
+
+        void delete(String word) {
+            SlangWord removed = words.get(word);
+            words = words.minus(word);
+            unindexKey(word);
+            unindexDefinitions(removed);
+            byId = byId.with(removed.getId(), null);
+            removeLive(removed.getId());
+        }
+
+        Version commit() {
+            return new Version(words, byId, live, slotById, defIndex, gramIndex, foldedKeys, trie,
+                    totalDefLength, false);
+        }
+
+        // Swap-remove: phần tử cuối của live lấp vào chỗ trống
+        private void removeLive(int id) {
+            int slot = slotById.get(id);
+            int lastSlot = live.size() - 1;
+            if (slot != lastSlot) {
+                SlangWord last = live.get(lastSlot);
+                live = live.with(slot, last);
+                slotById = slotById.with(last.getId(), slot);
+            }
+            live = live.pop();
+            slotById = slotById.with(id, null);
+        }
+
+        private void indexKey(String key) {
+            String folded = foldKey(key);
+            List<String> keys = foldedKeys.get(folded);
+            List<String> grown = new ArrayList<>(keys == null ? 1 : keys.size() + 1);
+            if (keys != null) grown.addAll(keys);
+            grown.add(key);
+            foldedKeys = foldedKeys.plus(folded, Collections.unmodifiableList(grown));
+            trie = trie.with(folded, key);
+        }
+
+        private void unindexKey(String key) {
+            String folded = foldKey(key);
+            trie = trie.without(folded, key);
+            List<String> keys = foldedKeys.get(folded);
+            if (keys == null || !keys.contains(key)) return;
+            if (keys.size() == 1) {
+                foldedKeys = foldedKeys.minus(folded);
+                return;
+            }
+            List<String> shrunk = new ArrayList<>(keys);
+            shrunk.remove(key);
+            foldedKeys = foldedKeys.plus(folded, Collections.unmodifiableList(shrunk));
+        }
+
+        private void indexDefinitions(SlangWord sw) {
+            defIndex = DefinitionIndex.addToIndex(defIndex, sw);
+            gramIndex = DefinitionIndex.addToGramIndex(gramIndex, sw);
+            totalDefLength += sw.getDefinitionLength();
+        }
+
+        private void unindexDefinitions(SlangWord sw) {
+            defIndex = DefinitionIndex.removeFromIndex(defIndex, sw);
+            gramIndex = DefinitionIndex.removeFromGramIndex(gramIndex, sw);
+            totalDefLength -= sw.getDefinitionLength();
+        }
+    }
+
+    /**
+     * Bảng tạm khi nạp hàng loạt: sửa tại chỗ (không ai khác thấy), rồi toVersion()
+     * dựng các cấu trúc persistent một lượt thay vì n lần path-copy.
+     */
+    private static final class Staging {
+        final Map<String, SlangWord> words;
+        final List<SlangWord> byId;
+
+        Staging(Version v) {
+            words = new HashMap<>(v.words);
+            byId = new ArrayList<>(v.byId.size());
+            for (int id = 0; id < v.byId.size(); id++) byId.add(v.byId.get(id));
+        }
+
+        void put(SlangWord slang) {
+            SlangWord old = words.get(slang.getWord());
+            slang = slang.withId(old != null ? old.getId() : byId.size()); // key trùng giữ ID cũ
+            if (slang.getId() == byId.size()) {
+                byId.add(slang);
+            } else {
+                byId.set(slang.getId(), slang);
+            }
+            words.put(slang.getWord(), slang);
+        }
+
+        // Phiên bản chưa có definition index (indexStale)
+        Version toVersion() {
+            Map<String, List<String>> folded = new HashMap<>();
+            List<SlangWord> live = new ArrayList<>(words.size());
+            List<Integer> slots = new ArrayList<>(byId.size());
+            for (SlangWord sw : byId) {
+                slots.add(sw == null ? null : live.size());
+                if (sw == null) continue;
+                live.add(sw);
+                folded.computeIfAbsent(foldKey(sw.getWord()), k -> new ArrayList<>(1)).add(sw.getWord());
+            }
+            for (Map.Entry<String, List<String>> e : folded.entrySet()) {
+                e.setValue(Collections.unmodifiableList(e.getValue()));
+            }
+            return new Version(PersistentMap.of(words), PersistentVector.of(byId), PersistentVector.of(live),
+                    PersistentVector.of(slots), PersistentMap.empty(), PersistentMap.empty(),
+                    PersistentMap.of(folded), WordTrie.of(folded), 0, true);
+        }
+    }
+
+    private static List<SlangWord> liveWordsInOrder(Version v) {
+        List<SlangWord> out = new ArrayList<>(v.words.size());
+        for (int id = 0; id < v.byId.size(); id++) {
+            SlangWord sw = v.byId.get(id);
+            if (sw != null) out.add(sw);
+        }
+        return out;
+    }
+
+    // ---------------- Index ----------------
+
+    /**
+     * Phiên bản hiện tại với index đã sẵn sàng. Nếu index cần build lại (sau bulk load)
+     * thì build dưới writeLock và công bố phiên bản mới; reader khác tiếp tục đọc bản cũ.
+     */
+    private Version ready() {
+        Version v = current;
+        if (!v.indexStale) return v;
+        writeLock.lock();
+        try {
+            if (current.indexStale) current = current.withBuiltIndex();
+            return current;
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     // Build index khi cần (không tự save)
     public void buildIndex() {
-        defIndex = DefinitionIndex.build(dictionary);
+        writeLock.lock();
+        try {
+            current = current.withBuiltIndex();
+        } finally {
+            writeLock.unlock();
+        }
     }
 
-    // Try load index từ file, nếu không có thì build
+    // Try load index từ file; nếu không có hoặc đã cũ so với data file thì build lại.
+    // Với -Dslang.index.mmap=true index được map read-only (off-heap, decode khi tra).
     public void loadOrBuildIndex() throws IOException {
-        Map<String, Set<String>> idx = DefinitionIndex.load();
-        if (idx == null) {
-            buildIndex();
-            DefinitionIndex.save(defIndex);
-        } else {
-            setDefIndex(idx);
+        long checksum = SlangDAO.checksum();
+        writeLock.lock();
+        try {
+            Version v = current;
+            Map<String, IdBitmap> idx = loadIndexFile(DefinitionIndex.INDEX_FILE, checksum, v.words.size());
+            Map<String, IdBitmap> grams = idx == null ? null
+                    : loadIndexFile(DefinitionIndex.GRAM_INDEX_FILE, checksum, v.words.size());
+            if (idx == null || grams == null) {
+                current = v.withBuiltIndex();
+                saveIndex(checksum);
+            } else {
+                current = v.withIndex(idx, grams);
+                // dọn file của generation cũ mà lần compact trước chưa xóa được
+                DefinitionIndex.deleteOtherGenerations(DefinitionIndex.INDEX_FILE, checksum);
+                DefinitionIndex.deleteOtherGenerations(DefinitionIndex.GRAM_INDEX_FILE, checksum);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static Map<String, IdBitmap> loadIndexFile(String file, long checksum, int wordCount) throws IOException {
+        String path = DefinitionIndex.fileFor(file, checksum);
+        return Boolean.getBoolean(MMAP_PROPERTY)
+                ? DefinitionIndex.loadMapped(path, checksum, wordCount)
+                : DefinitionIndex.load(path, checksum, wordCount);
+    }
+
+    /**
+     * Lưu index, nén ID theo thứ tự getAllInOrder() (đúng thứ tự SlangDAO.save ghi ra)
+     * để lần load sau ID của dictionary khớp với ID trong file index.
+     */
+    public void saveIndex(long dataChecksum) throws IOException {
+        Version v = ready(); // phiên bản bất biến: không cần giữ lock khi ghi
+        int[] remap = new int[v.byId.size()];
+        int next = 0;
+        for (int id = 0; id < remap.length; id++) {
+            remap[id] = v.byId.get(id) != null ? next++ : -1;
         }
+        DefinitionIndex.save(DefinitionIndex.fileFor(DefinitionIndex.INDEX_FILE, dataChecksum), v.defIndex, remap, dataChecksum);
+        DefinitionIndex.save(DefinitionIndex.fileFor(DefinitionIndex.GRAM_INDEX_FILE, dataChecksum), v.gramIndex, remap, dataChecksum);
+        DefinitionIndex.deleteOtherGenerations(DefinitionIndex.INDEX_FILE, dataChecksum);
+        DefinitionIndex.deleteOtherGenerations(DefinitionIndex.GRAM_INDEX_FILE, dataChecksum);
+    }
+
+    // ---------------- Metrics ----------------
+
+    // Số lần findByWord không khớp đúng key và phải tra folded key (sai hoa/thường, dấu, hoặc không có)
+    public long getWordFallbacks() {
+        return wordFallbacks.sum();
+    }
+
+    // Số lần tìm definition phải duyệt mọi slang vì query không tạo được n-gram
+    public long getFullScans() {
+        return fullScans.sum();
+    }
+
+    // Phân bố kích thước tập ứng viên từ n-gram index (trước khi lọc substring / xếp hạng)
+    public Histogram getCandidateSizes() {
+        return candidateSizes;
+    }
+
+    // Thống kê QueryCache: số entry, byte ước lượng, hit/miss, tỉ lệ hit, số entry bị đẩy ra / invalidate
+    public Map<String, Number> getQueryCacheStats() {
+        Map<String, Number> m = new LinkedHashMap<>();
+        long hits = queryCache.hits(), misses = queryCache.misses();
+        m.put("entries", queryCache.size());
+        m.put("bytes", queryCache.bytes());
+        m.put("hits", hits);
+        m.put("misses", misses);
+        m.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        m.put("evictions", queryCache.evictions());
+        m.put("invalidations", queryCache.invalidations());
+        return m;
+    }
+
+    // Đổi giới hạn cache (số entry, số byte ước lượng); 0 entry là tắt cache
+    public void setQueryCacheLimits(int maxEntries, long maxBytes) {
+        queryCache.setLimits(maxEntries, maxBytes);
     }
-}
\ No newline at end of file
+}
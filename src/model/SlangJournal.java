@@ -0,0 +1,258 @@
+package src.model;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * SlangJournal
+ * - Journal append-only các thay đổi (add/edit/delete) kể từ snapshot data/slang.txt gần nhất,
+ *   để mỗi thao tác chỉ tốn một lần ghi nhỏ thay vì ghi lại cả dictionary.
+ * - appendXxx chỉ ghi; sync() fsync một lần cho cả lô record (group commit).
+ * - Lúc khởi động SlangDAO.load nạp snapshot rồi replay journal; khi journal đủ dài thì
+ *   compact: ghi snapshot mới và bắt đầu journal rỗng.
+ *
+ * Format (big-endian):
+ * - header: magic "SLJN", version, CRC32 của snapshot mà journal áp dụng lên
+ * - mỗi record: độ dài payload (int), CRC32 của payload (int), payload
+ *   payload = op (byte) + các chuỗi UTF-8 có tiền tố độ dài (int).
+ *
+ * Lưu ý:
+ * - Record bị ghi dở (crash giữa chừng) có độ dài hoặc CRC sai: replay dừng ở đó
+ *   và open() cắt bỏ phần đuôi hỏng trước khi ghi tiếp.
+ * - Journal có checksum header khác snapshot hiện tại là journal cũ (snapshot đã được
+ *   compact sau nó) nên bị bỏ qua.
+ * - reset() lỗi giữa chừng (snapshot mới đã thay) thì journal bị đánh dấu stale: append và
+ *   truncate ném IOException cho tới khi reset thành công, để không record nào bị ghi vào
+ *   journal của snapshot cũ (lần load sau sẽ bỏ chúng).
+ */
+public final class SlangJournal implements Closeable {
+
+    public static final String JOURNAL_FILE = "data/slang.journal";
+
+    static final int MAGIC = 0x534C4A4E; // "SLJN"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_EDIT = 2;
+    private static final byte OP_DELETE = 3;
+    private static final int MAX_RECORD = 16 << 20;
+
+    private final FileChannel channel;
+    private int recordCount;
+    private boolean stale; // header chưa gắn với snapshot mới sau một lần reset lỗi
+
+    private SlangJournal(FileChannel channel, int recordCount) {
+        this.channel = channel;
+        this.recordCount = recordCount;
+    }
+
+    /**
+     * Mở journal để ghi tiếp. Nếu file chưa có hoặc thuộc snapshot khác thì tạo journal rỗng;
+     * nếu đuôi file có record hỏng thì cắt bỏ.
+     */
+    public static SlangJournal open(Path file, long snapshotChecksum) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            Scan scan = scan(ch, snapshotChecksum, null);
+            if (scan == null) {
+                writeHeader(ch, snapshotChecksum);
+                return new SlangJournal(ch, 0);
+            }
+            if (scan.validEnd < ch.size()) {
+                ch.truncate(scan.validEnd);
+                ch.force(true);
+            }
+            ch.position(scan.validEnd);
+            return new SlangJournal(ch, scan.records);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Áp các record hợp lệ của journal lên dictionary (gọi sau khi đã nạp snapshot).
+     * Trả về số record đã áp; 0 nếu không có journal hoặc journal thuộc snapshot khác.
+     */
+    public static int replay(Path file, long snapshotChecksum, SlangDictionary dict) throws IOException {
+        if (!Files.exists(file)) return 0;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            Scan scan = scan(ch, snapshotChecksum, dict);
+            return scan == null ? 0 : scan.records;
+        }
+    }
+
+    public void appendPut(SlangWord sw) throws IOException {
+        append(OP_PUT, sw.getWord(), sw.getDefinitions());
+    }
+
+    public void appendEdit(String oldWord, SlangWord sw) throws IOException {
+        List<String> fields = new ArrayList<>(sw.getDefinitions().size() + 1);
+        fields.add(sw.getWord());
+        fields.addAll(sw.getDefinitions());
+        append(OP_EDIT, oldWord, fields);
+    }
+
+    public void appendDelete(String word) throws IOException {
+        append(OP_DELETE, word, null);
+    }
+
+    // fsync các record đã append
+    public void sync() throws IOException {
+        channel.force(false);
+    }
+
+    // Xóa toàn bộ record, bắt đầu journal rỗng cho snapshot mới (sau khi compact)
+    public void reset(long snapshotChecksum) throws IOException {
+        stale = true; // tới khi header mới đã fsync
+        writeHeader(channel, snapshotChecksum);
+        recordCount = 0;
+        stale = false;
+    }
+
+    /**
+     * Cắt journal về size byte / records record (một điểm đã fsync trước đó), bỏ các record
+     * append sau đó mà chưa chắc đã bền, để ghi lại chúng không tạo record trùng.
+     */
+    public void truncate(long size, int records) throws IOException {
+        checkNotStale();
+        channel.truncate(size);
+        channel.position(size);
+        recordCount = records;
+    }
+
+    public int recordCount() { return recordCount; }
+
+    public long size() throws IOException { return channel.size(); }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // ---------------- Encoding ----------------
+
+    private void checkNotStale() throws IOException {
+        if (stale) throw new IOException("journal chưa được reset theo snapshot mới (compact lỗi)");
+    }
+
+    private void append(byte op, String key, List<String> fields) throws IOException {
+        checkNotStale();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(op);
+        writeString(out, key);
+        out.writeInt(fields == null ? 0 : fields.size());
+        if (fields != null) {
+            for (String f : fields) writeString(out, f);
+        }
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.length);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        while (record.hasRemaining()) channel.write(record);
+        recordCount++;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int len = in.getInt();
+        if (len < 0 || len > in.remaining()) throw new IllegalStateException("chuỗi hỏng trong journal");
+        String s = new String(in.array(), in.arrayOffset() + in.position(), len, StandardCharsets.UTF_8);
+        in.position(in.position() + len);
+        return s;
+    }
+
+    private static void writeHeader(FileChannel ch, long snapshotChecksum) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(snapshotChecksum).flip();
+        ch.truncate(0);
+        while (header.hasRemaining()) ch.write(header, header.position());
+        ch.position(HEADER_SIZE);
+        ch.force(true);
+    }
+
+    private static final class Scan {
+        long validEnd;
+        int records;
+    }
+
+    /**
+     * Duyệt các record hợp lệ từ đầu file; nếu dict != null thì áp từng record lên dict.
+     * Trả về null nếu header không khớp snapshot.
+     */
+    private static Scan scan(FileChannel ch, long snapshotChecksum, SlangDictionary dict) throws IOException {
+        long size = ch.size();
+        if (size < HEADER_SIZE) return null;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(ch, header, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getLong(8) != snapshotChecksum) {
+            return null;
+        }
+        Scan scan = new Scan();
+        long pos = HEADER_SIZE;
+        ByteBuffer frame = ByteBuffer.allocate(8);
+        CRC32 crc = new CRC32();
+        while (pos + 8 <= size) {
+            frame.clear();
+            readFully(ch, frame, pos);
+            int len = frame.getInt(0);
+            if (len <= 0 || len > MAX_RECORD || pos + 8 + len > size) break;
+            ByteBuffer payload = ByteBuffer.allocate(len);
+            readFully(ch, payload, pos + 8);
+            crc.reset();
+            crc.update(payload.array(), 0, len);
+            if ((int) crc.getValue() != frame.getInt(4)) break;
+            payload.flip();
+            if (dict != null) apply(payload, dict);
+            pos += 8 + len;
+            scan.records++;
+        }
+        scan.validEnd = pos;
+        return scan;
+    }
+
+    private static void apply(ByteBuffer payload, SlangDictionary dict) {
+        byte op = payload.get();
+        String key = readString(payload);
+        int n = payload.getInt();
+        List<String> fields = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) fields.add(readString(payload));
+        switch (op) {
+            case OP_PUT:
+                dict.addSlang(new SlangWord(key, fields));
+                break;
+            case OP_EDIT:
+                dict.editSlang(key, new SlangWord(fields.get(0), new ArrayList<>(fields.subList(1, n))));
+                break;
+            case OP_DELETE:
+                dict.deleteSlang(key);
+                break;
+            default:
+                throw new IllegalStateException("op không hợp lệ trong journal: " + op);
+        }
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, pos + buf.position()) < 0) throw new EOFException();
+        }
+    }
+}
@@ -1,20 +1,63 @@
 package src.model;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * SlangWord (bất biến)
+ * - Giữ kèm bản normalize (bỏ dấu, lowercase) của từng definition, tính một lần khi tạo
+ *   để tìm kiếm theo definition chỉ còn indexOf.
+ * - Một SlangWord có thể nằm trong nhiều phiên bản của SlangDictionary mà reader đọc không lock,
+ *   nên không có setter: muốn đổi thì tạo SlangWord mới. Danh sách definition là bản chép
+ *   không sửa được.
+ */
 public class SlangWord {
-    private String word;
-    private List<String> definitions;
+    private final String word;
+    private final List<String> definitions;
+    private final String[] normalizedDefinitions;
+    private final int definitionLength; // tổng số token của các definition, dùng cho BM25
+    private final int id; // ID dày do SlangDictionary gán, dùng trong posting list của DefinitionIndex; -1 nếu chưa gán
 
     public SlangWord(String word, List<String> definitions) {
         this.word = word;
-        this.definitions = definitions;
+        this.definitions = definitions == null ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(definitions));
+        this.normalizedDefinitions = normalizeAll(this.definitions);
+        this.definitionLength = DefinitionIndex.countTokens(normalizedDefinitions);
+        this.id = -1;
+    }
+
+    // Bản sao mang ID khác: dùng lại definitions và bản normalize (cả hai đều không bị sửa)
+    private SlangWord(SlangWord base, int id) {
+        this.word = base.word;
+        this.definitions = base.definitions;
+        this.normalizedDefinitions = base.normalizedDefinitions;
+        this.definitionLength = base.definitionLength;
+        this.id = id;
     }
 
     public String getWord() { return word; }
     public List<String> getDefinitions() { return definitions; }
-    public void setWord(String word) { this.word = word; }
-    public void setDefinitions(List<String> definitions) { this.definitions = definitions; }
+    String[] getNormalizedDefinitions() { return normalizedDefinitions; }
+    int getDefinitionLength() { return definitionLength; }
+    public int getId() { return id; }
+
+    // Chính nó nếu đã có ID này, ngược lại một bản sao mang ID mới
+    SlangWord withId(int id) {
+        return this.id == id ? this : new SlangWord(this, id);
+    }
+
+    private static String[] normalizeAll(List<String> definitions) {
+        if (definitions == null) return new String[0];
+        int n = 0;
+        String[] out = new String[definitions.size()];
+        for (String d : definitions) {
+            if (d != null) out[n++] = DefinitionIndex.normalize(d);
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
 
     @Override
     public String toString() {
@@ -0,0 +1,262 @@
+package src.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * WordTrie
+ * - Prefix trie trên folded key (lowercase, bỏ dấu) để gợi ý slang khi đang gõ.
+ * - Mỗi node giữ mảng label đã sắp xếp (binary search) thay vì HashMap để gọn bộ nhớ.
+ * - Bất biến: with()/without() trả về trie mới, chỉ chép các node trên đường đi của key;
+ *   các nhánh khác dùng chung với trie cũ (để SlangDictionary giữ nhiều phiên bản).
+ */
+public final class WordTrie {
+
+    // Số phép sửa tối đa similar() chấp nhận; lớn hơn thì automaton gần như duyệt cả trie
+    public static final int MAX_EDITS = 3;
+
+    private static final char[] NO_LABELS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final String[] NO_WORDS = new String[0];
+
+    private static final WordTrie EMPTY = new WordTrie(new Node());
+
+    private final Node root;
+
+    // Node chỉ bị sửa tại chỗ khi đang dựng trie mới trong of(); sau đó không đổi nữa
+    private static final class Node {
+        char[] labels = NO_LABELS;
+        Node[] children = NO_CHILDREN;
+        String[] words = NO_WORDS; // key gốc kết thúc tại node này
+        int subtreeSize;            // số key trong cả nhánh, dùng để tỉa nhánh rỗng
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node copy() {
+            Node n = new Node();
+            n.labels = labels;
+            n.children = children;
+            n.words = words;
+            n.subtreeSize = subtreeSize;
+            return n;
+        }
+
+        // Đặt con ứng với c (thêm label nếu chưa có, bỏ label nếu child == null); sửa node này
+        void setChild(char c, Node child) {
+            int i = Arrays.binarySearch(labels, c);
+            int n = labels.length;
+            if (i >= 0 && child != null) {
+                children = children.clone();
+                children[i] = child;
+            } else if (i >= 0) {
+                if (n == 1) {
+                    labels = NO_LABELS;
+                    children = NO_CHILDREN;
+                    return;
+                }
+                char[] newLabels = new char[n - 1];
+                Node[] newChildren = new Node[n - 1];
+                System.arraycopy(labels, 0, newLabels, 0, i);
+                System.arraycopy(children, 0, newChildren, 0, i);
+                System.arraycopy(labels, i + 1, newLabels, i, n - i - 1);
+                System.arraycopy(children, i + 1, newChildren, i, n - i - 1);
+                labels = newLabels;
+                children = newChildren;
+            } else if (child != null) {
+                int at = -i - 1;
+                char[] newLabels = new char[n + 1];
+                Node[] newChildren = new Node[n + 1];
+                System.arraycopy(labels, 0, newLabels, 0, at);
+                System.arraycopy(children, 0, newChildren, 0, at);
+                System.arraycopy(labels, at, newLabels, at + 1, n - at);
+                System.arraycopy(children, at, newChildren, at + 1, n - at);
+                newLabels[at] = c;
+                newChildren[at] = child;
+                labels = newLabels;
+                children = newChildren;
+            }
+        }
+
+        int indexOfWord(String word) {
+            for (int i = 0; i < words.length; i++) {
+                if (words[i].equals(word)) return i;
+            }
+            return -1;
+        }
+    }
+
+    private WordTrie(Node root) {
+        this.root = root;
+    }
+
+    public static WordTrie empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Dựng trie một lượt từ folded key -> các key gốc (theo thứ tự trong list).
+     * Các node mới chưa ai thấy nên được sửa tại chỗ, không chép đường đi.
+     */
+    public static WordTrie of(Map<String, List<String>> foldedKeys) {
+        Node root = new Node();
+        for (Map.Entry<String, List<String>> e : foldedKeys.entrySet()) {
+            String folded = e.getKey();
+            Node n = root;
+            n.subtreeSize += e.getValue().size();
+            for (int i = 0; i < folded.length(); i++) {
+                Node c = n.child(folded.charAt(i));
+                if (c == null) {
+                    c = new Node();
+                    n.setChild(folded.charAt(i), c);
+                }
+                c.subtreeSize += e.getValue().size();
+                n = c;
+            }
+            n.words = e.getValue().toArray(NO_WORDS);
+        }
+        return new WordTrie(root);
+    }
+
+    // Trie mới có thêm key gốc `word` dưới đường đi `folded`
+    public WordTrie with(String folded, String word) {
+        if (folded == null || word == null) return this;
+        Node r = add(root, folded, 0, word);
+        return r == root ? this : new WordTrie(r);
+    }
+
+    // Trie mới không còn key gốc `word`; các node không còn key nào bị tỉa
+    public WordTrie without(String folded, String word) {
+        if (folded == null || word == null) return this;
+        Node r = remove(root, folded, 0, word);
+        if (r == root) return this;
+        return r == null ? EMPTY : new WordTrie(r);
+    }
+
+    // Trả về node mới (chép đường đi), hoặc chính n nếu word đã có
+    private static Node add(Node n, String folded, int depth, String word) {
+        Node out;
+        if (depth == folded.length()) {
+            if (n.indexOfWord(word) >= 0) return n;
+            out = n.copy();
+            out.words = Arrays.copyOf(n.words, n.words.length + 1);
+            out.words[n.words.length] = word;
+        } else {
+            char c = folded.charAt(depth);
+            Node child = n.child(c);
+            Node newChild = add(child == null ? new Node() : child, folded, depth + 1, word);
+            if (newChild == child) return n;
+            out = n.copy();
+            out.setChild(c, newChild);
+        }
+        out.subtreeSize++;
+        return out;
+    }
+
+    // Trả về node mới không có word, chính n nếu không đổi, null nếu nhánh rỗng
+    private static Node remove(Node n, String folded, int depth, String word) {
+        Node out;
+        if (depth == folded.length()) {
+            int at = n.indexOfWord(word);
+            if (at < 0) return n;
+            out = n.copy();
+            out.words = n.words.length == 1 ? NO_WORDS : new String[n.words.length - 1];
+            System.arraycopy(n.words, 0, out.words, 0, at);
+            System.arraycopy(n.words, at + 1, out.words, at, n.words.length - at - 1);
+        } else {
+            char c = folded.charAt(depth);
+            Node child = n.child(c);
+            if (child == null) return n;
+            Node newChild = remove(child, folded, depth + 1, word);
+            if (newChild == child) return n;
+            out = n.copy();
+            out.setChild(c, newChild);
+        }
+        out.subtreeSize--;
+        return out.subtreeSize == 0 && depth > 0 ? null : out;
+    }
+
+    /**
+     * Trả về tối đa `limit` key gốc có folded key bắt đầu bằng `foldedPrefix`,
+     * theo thứ tự từ điển (key ngắn hơn đứng trước). Chỉ duyệt phần nhánh cần thiết.
+     */
+    public List<String> completions(String foldedPrefix, int limit) {
+        if (foldedPrefix == null || limit <= 0) return Collections.emptyList();
+        Node n = root;
+        for (int i = 0; i < foldedPrefix.length() && n != null; i++) {
+            n = n.child(foldedPrefix.charAt(i));
+        }
+        if (n == null || n.subtreeSize == 0) return Collections.emptyList();
+        List<String> out = new ArrayList<>(Math.min(limit, n.subtreeSize));
+        collect(n, out, limit);
+        return out;
+    }
+
+    private static void collect(Node n, List<String> out, int limit) {
+        for (String w : n.words) {
+            if (out.size() >= limit) return;
+            out.add(w);
+        }
+        for (Node c : n.children) {
+            if (out.size() >= limit) return;
+            collect(c, out, limit);
+        }
+    }
+
+    /**
+     * Tìm gần đúng: các key gốc có folded key cách `folded` tối đa maxEdits phép sửa
+     * (Levenshtein), gần nhất trước, tối đa `limit` kết quả.
+     * Duyệt trie như một Levenshtein automaton: mỗi node tính một hàng DP từ hàng của node cha,
+     * bỏ cả nhánh khi giá trị nhỏ nhất của hàng đã vượt maxEdits.
+     * Query rỗng, maxEdits âm hoặc lớn hơn MAX_EDITS trả về list rỗng.
+     */
+    public List<String> similar(String folded, int maxEdits, int limit) {
+        if (folded == null || folded.isEmpty() || maxEdits < 0 || maxEdits > MAX_EDITS
+                || limit <= 0 || root.subtreeSize == 0) {
+            return Collections.emptyList();
+        }
+        int m = folded.length();
+        int[] first = new int[m + 1];
+        for (int j = 0; j <= m; j++) first[j] = j;
+        List<List<String>> byDistance = new ArrayList<>(maxEdits + 1);
+        for (int d = 0; d <= maxEdits; d++) byDistance.add(new ArrayList<>());
+        if (first[m] <= maxEdits) byDistance.get(first[m]).addAll(Arrays.asList(root.words));
+        for (int i = 0; i < root.children.length; i++) {
+            searchSimilar(root.children[i], root.labels[i], first, folded, maxEdits, byDistance);
+        }
+        List<String> out = new ArrayList<>(Math.min(limit, root.subtreeSize));
+        for (List<String> bucket : byDistance) {
+            Collections.sort(bucket);
+            for (String w : bucket) {
+                if (out.size() >= limit) return out;
+                out.add(w);
+            }
+        }
+        return out;
+    }
+
+    private static void searchSimilar(Node n, char c, int[] prevRow, String q, int maxEdits,
+                                      List<List<String>> byDistance) {
+        int m = q.length();
+        int[] row = new int[m + 1];
+        row[0] = prevRow[0] + 1;
+        int rowMin = row[0];
+        for (int j = 1; j <= m; j++) {
+            int cost = q.charAt(j - 1) == c ? 0 : 1;
+            row[j] = Math.min(Math.min(row[j - 1] + 1, prevRow[j] + 1), prevRow[j - 1] + cost);
+            if (row[j] < rowMin) rowMin = row[j];
+        }
+        if (rowMin > maxEdits) return; // mọi key trong nhánh này đều quá xa
+        if (row[m] <= maxEdits && n.words.length > 0) byDistance.get(row[m]).addAll(Arrays.asList(n.words));
+        for (int i = 0; i < n.children.length; i++) {
+            searchSimilar(n.children[i], n.labels[i], row, q, maxEdits, byDistance);
+        }
+    }
+
+    public int size() { return root.subtreeSize; }
+}
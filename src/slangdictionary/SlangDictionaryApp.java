@@ -2,8 +2,11 @@ package src.slangdictionary;
 
 import javafx.application.Application;
 import javafx.stage.Stage;
+import src.controller.SlangController;
 import src.view.*;
 
+import java.io.IOException;
+
 public class SlangDictionaryApp extends Application {
     @Override
     public void start(Stage stage) {
@@ -13,6 +16,16 @@ public class SlangDictionaryApp extends Application {
         ViewManager.getInstance().switchScene(new MainMenuView().getScene());
     }
 
+    @Override
+    public void stop() {
+        try {
+            SlangController.getInstance().flush(); // ghi nốt các thay đổi đang chờ trước khi thoát
+        } catch (IOException e) {
+            System.err.println("Chưa lưu được một số thay đổi xuống đĩa: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
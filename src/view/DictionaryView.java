@@ -4,6 +4,7 @@ import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
+import javafx.geometry.Side;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.input.MouseEvent;
@@ -23,6 +24,10 @@ import java.util.stream.Collectors;
  * - Interacts with SlangController (MVC).
  */
 public class DictionaryView {
+    private static final int MAX_SUGGESTIONS = 10;
+    private static final int MAX_SIMILAR = 5;
+    private static final int MAX_DEFINITION_RESULTS = 100; // top-k theo BM25
+
     private final SlangController controller;
     private final ObservableList<SlangWord> items = FXCollections.observableArrayList();
     private ListView<SlangWord> listView;
@@ -40,6 +45,8 @@ public class DictionaryView {
         Button btnAdd = new Button("Add");
         Button btnRandom = new Button("Random Slang");
         Button btnReset = new Button("Reset to Original");
+        Button btnUndo = new Button("Undo");
+        Button btnRedo = new Button("Redo");
 
         listView = new ListView<>(items);
         listView.setCellFactory(lv -> new SlangListCell());
@@ -63,7 +70,7 @@ public class DictionaryView {
                 results.add(sw);
                 added.add(sw.getWord());
             }
-            List<SlangWord> byDef = controller.searchByDefinition(q);
+            List<SlangWord> byDef = controller.searchByDefinition(q, MAX_DEFINITION_RESULTS);
             for (SlangWord s : byDef) {
                 if (!added.contains(s.getWord())) {
                     results.add(s);
@@ -72,13 +79,24 @@ public class DictionaryView {
             }
 
             if (results.isEmpty()) {
-               searcAlert.setContentText("No results found for \"" + q + "\".");
+               String msg = "No results found for \"" + q + "\".";
+               List<String> similar = controller.suggestSimilar(q, MAX_SIMILAR);
+               if (!similar.isEmpty()) msg += "\nDid you mean: " + String.join(", ", similar) + "?";
+               searcAlert.setContentText(msg);
                searcAlert.showAndWait();
                return;
             }
             items.setAll(results);
         });
 
+        // Autocomplete: gợi ý slang theo prefix mỗi lần gõ
+        ContextMenu suggestions = new ContextMenu();
+        input.textProperty().addListener((obs, oldText, newText) ->
+                showSuggestions(input, suggestions, btnSearch, newText));
+        input.focusedProperty().addListener((obs, wasFocused, focused) -> {
+            if (!focused) suggestions.hide();
+        });
+
         btnShow.setOnAction(e -> refreshList());
 
         btnBack.setOnAction(e -> ViewManager.getInstance().switchScene(new MainMenuView().getScene()));
@@ -118,10 +136,26 @@ public class DictionaryView {
             resetAlert.showAndWait();
         });
 
+        btnUndo.setOnAction(e -> {
+            if (!controller.undo()) {
+                showAlert(Alert.AlertType.INFORMATION, "Nothing to undo.");
+                return;
+            }
+            refreshList();
+        });
+
+        btnRedo.setOnAction(e -> {
+            if (!controller.redo()) {
+                showAlert(Alert.AlertType.INFORMATION, "Nothing to redo.");
+                return;
+            }
+            refreshList();
+        });
+
         HBox topRow = new HBox(8, title, input, btnSearch, btnAdd, btnRandom, btnReset);
         topRow.setPadding(new Insets(8));
 
-        HBox bottomRow = new HBox(8, btnShow, btnBack);
+        HBox bottomRow = new HBox(8, btnShow, btnUndo, btnRedo, btnBack);
         bottomRow.setPadding(new Insets(8));
 
         VBox root = new VBox(10, topRow, listView, bottomRow);
@@ -143,6 +177,27 @@ public class DictionaryView {
         items.setAll(sorted);
     }
 
+    private void showSuggestions(TextField input, ContextMenu menu, Button btnSearch, String text) {
+        List<String> words = controller.suggestWords(text, MAX_SUGGESTIONS);
+        if (words.isEmpty() || !input.isFocused()) {
+            menu.hide();
+            return;
+        }
+        List<MenuItem> menuItems = new ArrayList<>(words.size());
+        for (String w : words) {
+            MenuItem mi = new MenuItem(w);
+            mi.setOnAction(e -> {
+                input.setText(w);
+                input.positionCaret(w.length());
+                menu.hide();
+                btnSearch.fire();
+            });
+            menuItems.add(mi);
+        }
+        menu.getItems().setAll(menuItems);
+        if (!menu.isShowing()) menu.show(input, Side.BOTTOM, 0, 0);
+    }
+
     private int findIndexByWord(String word) {
         for (int i = 0; i < items.size(); i++) {
             if (items.get(i).getWord().equals(word)) return i;
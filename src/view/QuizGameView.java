@@ -19,6 +19,7 @@ public class QuizGameView {
     private int correctCount = 0;
     private int timeLeft = 10;
     private Timeline timer;
+    private QuizQuestion current; // câu đang hiển thị (ghi nhận hết giờ)
 
     private Label lblQuestion;
     private Label lblTimer;
@@ -76,30 +77,25 @@ public class QuizGameView {
 
         questionCount++;
 
-        // Random câu hỏi
-        List<SlangWord> all = new ArrayList<>(controller.getAllSlang().values());
-        Collections.shuffle(all);
-
-        SlangWord correct = all.get(0);
-        Set<String> options = new HashSet<>();
-        options.add(typeA ? correct.getDefinitions().get(0) : correct.getWord());
-        while (options.size() < 4) {
-            SlangWord rand = all.get(new Random().nextInt(all.size()));
-            options.add(typeA ? rand.getDefinitions().get(0) : rand.getWord());
+        // Câu hỏi đã được QuizService dựng sẵn ở thread nền
+        QuizQuestion question = controller.nextQuizQuestion(typeA);
+        current = question;
+        if (question == null) {
+            showResult();
+            return;
         }
 
-        List<String> opts = new ArrayList<>(options);
-        Collections.shuffle(opts);
+        lblQuestion.setText(question.getPrompt());
 
-        lblQuestion.setText(typeA
-                ? "What is the meaning of: " + correct.getWord()
-                : "Which slang means: " + correct.getDefinitions().get(0));
-
-        for (int i = 0; i < 4; i++) {
-            String text = opts.get(i);
+        List<String> opts = question.getOptions();
+        for (int i = 0; i < answerButtons.size(); i++) {
             Button btn = answerButtons.get(i);
-            btn.setText(text);
-            btn.setOnAction(e -> checkAnswer(text, correct));
+            boolean used = i < opts.size();
+            btn.setVisible(used);
+            if (!used) continue;
+            int choice = i;
+            btn.setText(opts.get(i));
+            btn.setOnAction(e -> checkAnswer(question, choice));
         }
     }
 
@@ -108,15 +104,15 @@ public class QuizGameView {
         lblTimer.setText("⏰ " + timeLeft + "s");
         if (timeLeft <= 0) {
             timer.stop();
+            controller.recordQuizAnswer(current, -1);
+            current = null;
             showResult();
         }
     }
 
-    private void checkAnswer(String chosen, SlangWord correct) {
-        boolean isCorrect = (typeA && correct.getDefinitions().contains(chosen))
-                         || (!typeA && correct.getWord().equals(chosen));
-
-        if (isCorrect) correctCount++;
+    private void checkAnswer(QuizQuestion question, int choice) {
+        if (question.isCorrect(choice)) correctCount++;
+        controller.recordQuizAnswer(question, choice); // lịch ôn lại (SM-2)
         loadNextQuestion();
     }
 